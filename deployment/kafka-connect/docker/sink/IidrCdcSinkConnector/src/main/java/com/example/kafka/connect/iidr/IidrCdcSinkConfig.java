@@ -1,14 +1,20 @@
 package com.example.kafka.connect.iidr;
 
+import com.example.kafka.connect.iidr.util.TableRoute;
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigDef.Type;
 import org.apache.kafka.common.config.ConfigDef.Importance;
+import org.apache.kafka.common.config.ConfigException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Configuration for the IIDR CDC Sink Connector.
@@ -25,12 +31,35 @@ public class IidrCdcSinkConfig extends AbstractConfig {
     public static final String CONNECTION_PASSWORD_CONFIG = "connection.password";
     private static final String CONNECTION_PASSWORD_DOC = "JDBC connection password";
 
+    public static final String CONNECTION_MAX_LIFETIME_MS_CONFIG = "connection.max.lifetime.ms";
+    private static final String CONNECTION_MAX_LIFETIME_MS_DOC = "Maximum lifetime of a pooled JDBC connection. " +
+            "Older connections are closed and replaced when returned to the pool. 0 disables the limit";
+    public static final long CONNECTION_MAX_LIFETIME_MS_DEFAULT = 1_800_000L;
+
+    public static final String CONNECTION_IDLE_TIMEOUT_MS_CONFIG = "connection.idle.timeout.ms";
+    private static final String CONNECTION_IDLE_TIMEOUT_MS_DOC = "Time after which an unused pooled JDBC " +
+            "connection is closed. 0 disables idle eviction";
+    public static final long CONNECTION_IDLE_TIMEOUT_MS_DEFAULT = 600_000L;
+
     // Table Mapping Settings
     public static final String TABLE_NAME_FORMAT_CONFIG = "table.name.format";
     private static final String TABLE_NAME_FORMAT_DOC = "Format string for target table name. " +
             "Use ${topic} for topic name, ${TableName} for header value";
     public static final String TABLE_NAME_FORMAT_DEFAULT = "${TableName}";
 
+    public static final String TABLE_ROUTES_CONFIG = "table.routes";
+    private static final String TABLE_ROUTES_DOC = "Aliases of per-table routes, so one connector can serve " +
+            "many tables of a shared topic. Each alias is configured with table.route.<alias>.source " +
+            "(TableName header value, default: the alias), table.route.<alias>.target (target table, " +
+            "default: the source) and table.route.<alias>.pk.fields (default: pk.fields). When set, " +
+            "records whose TableName has no route are skipped and table.name.format is not used";
+    public static final String TABLE_ROUTES_DEFAULT = "";
+
+    public static final String TABLE_ROUTE_PREFIX = "table.route.";
+    public static final String TABLE_ROUTE_SOURCE_SUFFIX = ".source";
+    public static final String TABLE_ROUTE_TARGET_SUFFIX = ".target";
+    public static final String TABLE_ROUTE_PK_FIELDS_SUFFIX = ".pk.fields";
+
     // Corrupt Events Table
     public static final String CORRUPT_EVENTS_TABLE_CONFIG = "corrupt.events.table";
     private static final String CORRUPT_EVENTS_TABLE_DOC = "Table name for corrupt/invalid events. " +
@@ -43,6 +72,13 @@ public class IidrCdcSinkConfig extends AbstractConfig {
             "'none' (fail the task), 'log' (log warning and skip), 'all' (silently skip)";
     public static final String ERRORS_TOLERANCE_DEFAULT = "log";
 
+    public static final String ERRORS_BISECT_CONFIG = "iidr.errors.bisect";
+    private static final String ERRORS_BISECT_DOC = "When a batch fails because the database rejects " +
+            "row data (constraint violation, invalid or oversized value), roll back to a savepoint and " +
+            "split the batch recursively until the offending records are isolated. Those records are " +
+            "handled as corrupt events per iidr.errors.tolerance; all other records are still written";
+    public static final boolean ERRORS_BISECT_DEFAULT = false;
+
     // Timezone Settings
     public static final String DEFAULT_TIMEZONE_CONFIG = "default.timezone";
     private static final String DEFAULT_TIMEZONE_DOC = "Default timezone for A_TIMSTAMP interpretation " +
@@ -59,6 +95,15 @@ public class IidrCdcSinkConfig extends AbstractConfig {
     private static final String PK_FIELDS_DOC = "Comma-separated list of primary key field names";
     public static final String PK_FIELDS_DEFAULT = "";
 
+    public static final String PK_FIELDS_TABLE_PREFIX = "pk.fields.";
+
+    public static final String PK_DISCOVERY_CONFIG = "pk.discovery";
+    private static final String PK_DISCOVERY_DOC = "Read the primary key of each target table from the " +
+            "database catalog, for tables without their own pk.fields.<table> or table route pk.fields. " +
+            "A discovered key takes precedence over the global pk.fields; tables without a primary key " +
+            "keep using pk.fields";
+    public static final boolean PK_DISCOVERY_DEFAULT = false;
+
     // DDL Settings
     public static final String AUTO_CREATE_CONFIG = "auto.create";
     private static final String AUTO_CREATE_DOC = "Automatically create target tables if they don't exist";
@@ -70,16 +115,63 @@ public class IidrCdcSinkConfig extends AbstractConfig {
 
     // Batch Settings
     public static final String BATCH_SIZE_CONFIG = "batch.size";
-    private static final String BATCH_SIZE_DOC = "Maximum number of records in a single JDBC batch";
+    private static final String BATCH_SIZE_DOC = "Maximum number of records written in a single transaction. " +
+            "Records are buffered across put() calls and flushed once this many are pending";
     public static final int BATCH_SIZE_DEFAULT = 3000;
 
+    public static final String BATCH_LINGER_MS_CONFIG = "batch.linger.ms";
+    private static final String BATCH_LINGER_MS_DOC = "Maximum time in milliseconds a record may stay " +
+            "buffered before a partial batch is flushed. 0 flushes at the end of every put()";
+    public static final long BATCH_LINGER_MS_DEFAULT = 0L;
+
+    public static final String COMPACTION_ENABLED_CONFIG = "compaction.enabled";
+    private static final String COMPACTION_ENABLED_DOC = "Collapse multiple changes to the same primary key " +
+            "within a batch into the final state of that key before writing. Requires pk.fields";
+    public static final boolean COMPACTION_ENABLED_DEFAULT = false;
+
+    // Writer Settings
+    public static final String WRITER_LANES_CONFIG = "writer.lanes";
+    private static final String WRITER_LANES_DOC = "Number of parallel writer lanes. Each lane owns a " +
+            "JDBC connection and writes the tables assigned to it concurrently with the other lanes";
+    public static final int WRITER_LANES_DEFAULT = 1;
+
+    public static final String WRITER_SHARDED_TABLES_CONFIG = "writer.sharded.tables";
+    private static final String WRITER_SHARDED_TABLES_DOC = "Comma-separated list of target tables whose " +
+            "batches are split across all writer lanes by a hash of the pk.fields values, instead of " +
+            "being pinned to a single lane. Changes to the same key always go to the same lane";
+    public static final String WRITER_SHARDED_TABLES_DEFAULT = "";
+
+    public static final String WRITE_MODE_CONFIG = "write.mode";
+    private static final String WRITE_MODE_DOC = "How inserts and upserts are sent to the database: " +
+            "'batch' (one row per statement, JDBC batched), 'multi_row' (many rows per statement in " +
+            "one VALUES list, sized to the database's bind-parameter limit) or 'unnest' (PostgreSQL: " +
+            "upserts and deletes bind each column as one array, so a batch is a single statement). " +
+            "Modes a dialect does not support fall back to 'batch'";
+    public static final String WRITE_MODE_DEFAULT = "batch";
+
+    public static final String BULK_THRESHOLD_CONFIG = "bulk.threshold";
+    private static final String BULK_THRESHOLD_DOC = "Minimum number of records in a table's run of " +
+            "upserts or deletes for it to be applied through the dialect's bulk path instead of prepared " +
+            "statements: rows are streamed into a staging table (PostgreSQL COPY, MySQL/MariaDB LOAD DATA " +
+            "LOCAL INFILE, which needs allowLoadLocalInfile=true, SQL Server bulk copy) and merged with " +
+            "set-based SQL. " +
+            "Requires pk.fields. 0 disables bulk loading";
+    public static final int BULK_THRESHOLD_DEFAULT = 0;
+
+    public static final String STATEMENT_CACHE_SIZE_CONFIG = "statement.cache.size";
+    private static final String STATEMENT_CACHE_SIZE_DOC = "Maximum number of prepared statements cached " +
+            "per JDBC connection. Least recently used statements are closed when the limit is reached";
+    public static final int STATEMENT_CACHE_SIZE_DEFAULT = 256;
+
     // Error Handling
     public static final String MAX_RETRIES_CONFIG = "max.retries";
-    private static final String MAX_RETRIES_DOC = "Maximum number of retries on transient errors";
+    private static final String MAX_RETRIES_DOC = "Maximum number of retries on transient errors " +
+            "(deadlock, lock timeout, serialization failure, connection loss) before the task fails";
     public static final int MAX_RETRIES_DEFAULT = 10;
 
     public static final String RETRY_BACKOFF_MS_CONFIG = "retry.backoff.ms";
-    private static final String RETRY_BACKOFF_MS_DOC = "Backoff time in milliseconds between retries";
+    private static final String RETRY_BACKOFF_MS_DOC = "Initial backoff time in milliseconds between retries. " +
+            "Doubles on each consecutive retry, with random jitter, capped at 60 seconds (or this value if larger)";
     public static final int RETRY_BACKOFF_MS_DEFAULT = 3000;
 
     public static final ConfigDef CONFIG_DEF = new ConfigDef()
@@ -90,13 +182,21 @@ public class IidrCdcSinkConfig extends AbstractConfig {
                     Importance.HIGH, CONNECTION_USER_DOC)
             .define(CONNECTION_PASSWORD_CONFIG, Type.PASSWORD, ConfigDef.NO_DEFAULT_VALUE,
                     Importance.HIGH, CONNECTION_PASSWORD_DOC)
+            .define(CONNECTION_MAX_LIFETIME_MS_CONFIG, Type.LONG, CONNECTION_MAX_LIFETIME_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0), Importance.LOW, CONNECTION_MAX_LIFETIME_MS_DOC)
+            .define(CONNECTION_IDLE_TIMEOUT_MS_CONFIG, Type.LONG, CONNECTION_IDLE_TIMEOUT_MS_DEFAULT,
+                    ConfigDef.Range.atLeast(0), Importance.LOW, CONNECTION_IDLE_TIMEOUT_MS_DOC)
             // Table Mapping
             .define(TABLE_NAME_FORMAT_CONFIG, Type.STRING, TABLE_NAME_FORMAT_DEFAULT,
                     Importance.MEDIUM, TABLE_NAME_FORMAT_DOC)
+            .define(TABLE_ROUTES_CONFIG, Type.LIST, TABLE_ROUTES_DEFAULT,
+                    Importance.MEDIUM, TABLE_ROUTES_DOC)
             .define(CORRUPT_EVENTS_TABLE_CONFIG, Type.STRING, CORRUPT_EVENTS_TABLE_DEFAULT,
                     Importance.LOW, CORRUPT_EVENTS_TABLE_DOC)
             .define(ERRORS_TOLERANCE_CONFIG, Type.STRING, ERRORS_TOLERANCE_DEFAULT,
                     Importance.MEDIUM, ERRORS_TOLERANCE_DOC)
+            .define(ERRORS_BISECT_CONFIG, Type.BOOLEAN, ERRORS_BISECT_DEFAULT,
+                    Importance.MEDIUM, ERRORS_BISECT_DOC)
             // Timezone
             .define(DEFAULT_TIMEZONE_CONFIG, Type.STRING, DEFAULT_TIMEZONE_DEFAULT,
                     Importance.MEDIUM, DEFAULT_TIMEZONE_DOC)
@@ -105,22 +205,85 @@ public class IidrCdcSinkConfig extends AbstractConfig {
                     Importance.HIGH, PK_MODE_DOC)
             .define(PK_FIELDS_CONFIG, Type.STRING, PK_FIELDS_DEFAULT,
                     Importance.HIGH, PK_FIELDS_DOC)
+            .define(PK_DISCOVERY_CONFIG, Type.BOOLEAN, PK_DISCOVERY_DEFAULT,
+                    Importance.MEDIUM, PK_DISCOVERY_DOC)
             // DDL
             .define(AUTO_CREATE_CONFIG, Type.BOOLEAN, AUTO_CREATE_DEFAULT,
                     Importance.MEDIUM, AUTO_CREATE_DOC)
             .define(AUTO_EVOLVE_CONFIG, Type.BOOLEAN, AUTO_EVOLVE_DEFAULT,
                     Importance.MEDIUM, AUTO_EVOLVE_DOC)
             // Batch
-            .define(BATCH_SIZE_CONFIG, Type.INT, BATCH_SIZE_DEFAULT,
+            .define(BATCH_SIZE_CONFIG, Type.INT, BATCH_SIZE_DEFAULT, ConfigDef.Range.atLeast(1),
                     Importance.LOW, BATCH_SIZE_DOC)
+            .define(BATCH_LINGER_MS_CONFIG, Type.LONG, BATCH_LINGER_MS_DEFAULT, ConfigDef.Range.atLeast(0),
+                    Importance.LOW, BATCH_LINGER_MS_DOC)
+            .define(COMPACTION_ENABLED_CONFIG, Type.BOOLEAN, COMPACTION_ENABLED_DEFAULT,
+                    Importance.LOW, COMPACTION_ENABLED_DOC)
+            // Writer
+            .define(WRITER_LANES_CONFIG, Type.INT, WRITER_LANES_DEFAULT, ConfigDef.Range.atLeast(1),
+                    Importance.LOW, WRITER_LANES_DOC)
+            .define(WRITER_SHARDED_TABLES_CONFIG, Type.LIST, WRITER_SHARDED_TABLES_DEFAULT,
+                    Importance.LOW, WRITER_SHARDED_TABLES_DOC)
+            .define(WRITE_MODE_CONFIG, Type.STRING, WRITE_MODE_DEFAULT,
+                    ConfigDef.ValidString.in("batch", "multi_row", "unnest"), Importance.LOW, WRITE_MODE_DOC)
+            .define(BULK_THRESHOLD_CONFIG, Type.INT, BULK_THRESHOLD_DEFAULT, ConfigDef.Range.atLeast(0),
+                    Importance.LOW, BULK_THRESHOLD_DOC)
+            .define(STATEMENT_CACHE_SIZE_CONFIG, Type.INT, STATEMENT_CACHE_SIZE_DEFAULT, ConfigDef.Range.atLeast(1),
+                    Importance.LOW, STATEMENT_CACHE_SIZE_DOC)
             // Error Handling
             .define(MAX_RETRIES_CONFIG, Type.INT, MAX_RETRIES_DEFAULT,
                     Importance.MEDIUM, MAX_RETRIES_DOC)
             .define(RETRY_BACKOFF_MS_CONFIG, Type.INT, RETRY_BACKOFF_MS_DEFAULT,
                     Importance.LOW, RETRY_BACKOFF_MS_DOC);
 
+    private final List<String> pkFields;
+    private final List<TableRoute> tableRoutes;
+    private final Map<String, List<String>> pkFieldsByTable = new HashMap<>();
+
     public IidrCdcSinkConfig(Map<?, ?> props) {
         super(CONFIG_DEF, props);
+        this.pkFields = parseFields(getString(PK_FIELDS_CONFIG));
+        this.tableRoutes = parseTableRoutes();
+        for (TableRoute route : tableRoutes) {
+            if (route.getPkFields() != null) {
+                List<String> previous = pkFieldsByTable.put(route.getTarget(), route.getPkFields());
+                if (previous != null && !previous.equals(route.getPkFields())) {
+                    throw new ConfigException(TABLE_ROUTES_CONFIG, route.getAlias(),
+                            "Conflicting pk.fields for target table " + route.getTarget());
+                }
+            }
+        }
+        // pk.fields.<table> overrides, taking precedence over route keys
+        for (Map.Entry<String, Object> entry : originalsWithPrefix(PK_FIELDS_TABLE_PREFIX).entrySet()) {
+            pkFieldsByTable.put(entry.getKey(), parseFields(String.valueOf(entry.getValue())));
+        }
+    }
+
+    private List<TableRoute> parseTableRoutes() {
+        Map<String, String> originals = originalsStrings();
+        List<TableRoute> routes = new ArrayList<>();
+        Set<String> sources = new HashSet<>();
+        for (String alias : getList(TABLE_ROUTES_CONFIG)) {
+            String prefix = TABLE_ROUTE_PREFIX + alias;
+            String source = originals.getOrDefault(prefix + TABLE_ROUTE_SOURCE_SUFFIX, alias).trim();
+            String target = originals.getOrDefault(prefix + TABLE_ROUTE_TARGET_SUFFIX, source).trim();
+            String pk = originals.get(prefix + TABLE_ROUTE_PK_FIELDS_SUFFIX);
+            if (source.isEmpty() || target.isEmpty()) {
+                throw new ConfigException(TABLE_ROUTES_CONFIG, alias, "Route source and target must not be empty");
+            }
+            if (!sources.add(source)) {
+                throw new ConfigException(TABLE_ROUTES_CONFIG, alias, "Duplicate route for TableName " + source);
+            }
+            routes.add(new TableRoute(alias, source, target, pk != null ? parseFields(pk) : null));
+        }
+        return Collections.unmodifiableList(routes);
+    }
+
+    private static List<String> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(fields.split(","));
     }
 
     public String getConnectionUrl() {
@@ -135,10 +298,22 @@ public class IidrCdcSinkConfig extends AbstractConfig {
         return getPassword(CONNECTION_PASSWORD_CONFIG).value();
     }
 
+    public long getConnectionMaxLifetimeMs() {
+        return getLong(CONNECTION_MAX_LIFETIME_MS_CONFIG);
+    }
+
+    public long getConnectionIdleTimeoutMs() {
+        return getLong(CONNECTION_IDLE_TIMEOUT_MS_CONFIG);
+    }
+
     public String getTableNameFormat() {
         return getString(TABLE_NAME_FORMAT_CONFIG);
     }
 
+    public List<TableRoute> getTableRoutes() {
+        return tableRoutes;
+    }
+
     public String getCorruptEventsTable() {
         return getString(CORRUPT_EVENTS_TABLE_CONFIG);
     }
@@ -160,6 +335,10 @@ public class IidrCdcSinkConfig extends AbstractConfig {
         return "log".equalsIgnoreCase(getErrorsTolerance());
     }
 
+    public boolean isErrorsBisect() {
+        return getBoolean(ERRORS_BISECT_CONFIG);
+    }
+
     public String getDefaultTimezone() {
         return getString(DEFAULT_TIMEZONE_CONFIG);
     }
@@ -169,11 +348,26 @@ public class IidrCdcSinkConfig extends AbstractConfig {
     }
 
     public List<String> getPkFields() {
-        String fields = getString(PK_FIELDS_CONFIG);
-        if (fields == null || fields.trim().isEmpty()) {
-            return Collections.emptyList();
-        }
-        return Arrays.asList(fields.split(","));
+        return pkFields;
+    }
+
+    /**
+     * Primary key fields configured for a target table: its pk.fields.&lt;table&gt; or
+     * route pk.fields if it has its own, else pk.fields.
+     */
+    public List<String> getPkFields(String tableName) {
+        return pkFieldsByTable.getOrDefault(tableName, pkFields);
+    }
+
+    /**
+     * Whether a target table has primary key fields of its own, rather than the global pk.fields.
+     */
+    public boolean hasTablePkFields(String tableName) {
+        return pkFieldsByTable.containsKey(tableName);
+    }
+
+    public boolean isPkDiscovery() {
+        return getBoolean(PK_DISCOVERY_CONFIG);
     }
 
     public boolean isAutoCreate() {
@@ -188,6 +382,42 @@ public class IidrCdcSinkConfig extends AbstractConfig {
         return getInt(BATCH_SIZE_CONFIG);
     }
 
+    public long getBatchLingerMs() {
+        return getLong(BATCH_LINGER_MS_CONFIG);
+    }
+
+    public boolean isCompactionEnabled() {
+        return getBoolean(COMPACTION_ENABLED_CONFIG);
+    }
+
+    public int getWriterLanes() {
+        return getInt(WRITER_LANES_CONFIG);
+    }
+
+    public Set<String> getWriterShardedTables() {
+        return new HashSet<>(getList(WRITER_SHARDED_TABLES_CONFIG));
+    }
+
+    public String getWriteMode() {
+        return getString(WRITE_MODE_CONFIG);
+    }
+
+    public boolean isMultiRowWriteMode() {
+        return "multi_row".equalsIgnoreCase(getWriteMode());
+    }
+
+    public boolean isUnnestWriteMode() {
+        return "unnest".equalsIgnoreCase(getWriteMode());
+    }
+
+    public int getBulkThreshold() {
+        return getInt(BULK_THRESHOLD_CONFIG);
+    }
+
+    public int getStatementCacheSize() {
+        return getInt(STATEMENT_CACHE_SIZE_CONFIG);
+    }
+
     public int getMaxRetries() {
         return getInt(MAX_RETRIES_CONFIG);
     }
@@ -1,22 +1,34 @@
 package com.example.kafka.connect.iidr;
 
+import com.example.kafka.connect.iidr.converter.LazyValue;
 import com.example.kafka.connect.iidr.dialect.Dialect;
 import com.example.kafka.connect.iidr.dialect.DialectFactory;
+import com.example.kafka.connect.iidr.dialect.SqlErrorCategory;
 import com.example.kafka.connect.iidr.operation.CdcOperation;
-import com.example.kafka.connect.iidr.operation.EntryTypeMapper;
-import com.example.kafka.connect.iidr.util.HeaderExtractor;
+import com.example.kafka.connect.iidr.util.RecordHeaders;
+import com.example.kafka.connect.iidr.util.TableNameResolver;
 import com.example.kafka.connect.iidr.util.TimestampConverter;
+import com.example.kafka.connect.iidr.writer.ConnectionPool;
 import com.example.kafka.connect.iidr.writer.CorruptEventWriter;
 import com.example.kafka.connect.iidr.writer.CorruptEventWriter.CorruptRecord;
-import com.example.kafka.connect.iidr.writer.JdbcWriter;
 import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+import com.example.kafka.connect.iidr.writer.PooledConnection;
+import com.example.kafka.connect.iidr.writer.RecordBuffer;
+import com.example.kafka.connect.iidr.writer.WriterPool;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.errors.RetriableException;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.sink.SinkTask;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,16 +38,26 @@ import java.util.logging.Logger;
  * This task reads CDC events, maps A_ENTTYP headers to operations,
  * converts timestamps, and writes to the target JDBC database.
  * Invalid events are routed to the corrupt events table.
+ *
+ * Records are buffered across put() calls and written once batch.size records
+ * are pending, once batch.linger.ms has passed, or when the framework flushes
+ * before committing offsets.
  */
 public class IidrCdcSinkTask extends SinkTask {
 
     private static final Logger log = Logger.getLogger(IidrCdcSinkTask.class.getName());
 
+    private static final long MAX_RETRY_BACKOFF_MS = 60_000L;
+
     private IidrCdcSinkConfig config;
-    private Connection connection;
-    private JdbcWriter jdbcWriter;
+    private ConnectionPool connectionPool;
+    private WriterPool writerPool;
+    private RecordBuffer buffer;
     private CorruptEventWriter corruptEventWriter;
     private TimestampConverter timestampConverter;
+    private final RecordHeaders headers = new RecordHeaders();
+    private TableNameResolver tableNameResolver;
+    private int remainingRetries;
 
     @Override
     public String version() {
@@ -48,40 +70,50 @@ public class IidrCdcSinkTask extends SinkTask {
 
         this.config = new IidrCdcSinkConfig(props);
         this.timestampConverter = new TimestampConverter(config.getDefaultTimezone());
+        this.tableNameResolver = new TableNameResolver(config.getTableNameFormat(), config.getTableRoutes());
+        this.buffer = new RecordBuffer();
+        this.remainingRetries = config.getMaxRetries();
 
-        // Initialize JDBC connection
+        // Initialize the JDBC connection pool: one connection per writer lane plus one for corrupt events
         try {
-            this.connection = DriverManager.getConnection(
-                    config.getConnectionUrl(),
-                    config.getConnectionUser(),
-                    config.getConnectionPassword()
-            );
-            connection.setAutoCommit(false);
+            this.connectionPool = new ConnectionPool(config, config.getWriterLanes() + 1);
 
-            Dialect dialect = DialectFactory.create(connection);
-            this.jdbcWriter = new JdbcWriter(connection, config, dialect);
+            PooledConnection pooled = connectionPool.borrow();
+            Dialect dialect;
+            try {
+                dialect = DialectFactory.create(pooled.getConnection());
+            } finally {
+                connectionPool.release(pooled);
+            }
+            this.writerPool = new WriterPool(config, connectionPool, dialect);
 
             // Initialize corrupt event writer only if enabled
             if (config.isCorruptEventsTableEnabled()) {
                 this.corruptEventWriter = new CorruptEventWriter(
-                        connection,
+                        connectionPool,
                         config.getCorruptEventsTable(),
                         false
                 );
 
                 if (config.isAutoCreate()) {
+                    PooledConnection ddlConnection = connectionPool.borrow();
+                    Connection connection = ddlConnection.getConnection();
                     try (java.sql.Statement stmt = connection.createStatement()) {
                         String sql = String.format("CREATE TABLE IF NOT EXISTS %s (id BIGINT AUTO_INCREMENT PRIMARY KEY, topic VARCHAR(255) NOT NULL, kafka_partition INT NOT NULL, kafka_offset BIGINT NOT NULL, record_key TEXT, record_value LONGTEXT, headers TEXT, error_reason VARCHAR(1000) NOT NULL, table_name VARCHAR(255), entry_type VARCHAR(10), created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, INDEX idx_topic_partition_offset (topic, kafka_partition, kafka_offset), INDEX idx_table_name (table_name), INDEX idx_created_at (created_at))", config.getCorruptEventsTable());
                         stmt.execute(sql);
                         connection.commit();
                     } catch (SQLException e) {
                         log.warning("Failed to create corrupt events table: " + e.getMessage());
+                        connection.rollback();
+                    } finally {
+                        connectionPool.release(ddlConnection);
                     }
                 }
             }
 
             log.info("IidrCdcSinkTask configuration: iidr.errors.tolerance=" + config.getErrorsTolerance() +
-                    ", corrupt.events.table=" + (config.isCorruptEventsTableEnabled() ? config.getCorruptEventsTable() : "disabled"));
+                    ", corrupt.events.table=" + (config.isCorruptEventsTableEnabled() ? config.getCorruptEventsTable() : "disabled") +
+                    ", writer.lanes=" + config.getWriterLanes());
 
             log.info("IidrCdcSinkTask started successfully");
 
@@ -92,16 +124,74 @@ public class IidrCdcSinkTask extends SinkTask {
 
     @Override
     public void put(Collection<SinkRecord> records) {
-        if (records.isEmpty()) {
-            return;
+        long mark = buffer.mark();
+        if (!records.isEmpty()) {
+            log.fine("Processing " + records.size() + " records");
+            bufferRecords(records);
+        }
+
+        try {
+            // Flush full batches, then whatever is left once the linger time has passed
+            int batchSize = config.getBatchSize();
+            while (buffer.size() >= batchSize) {
+                flushBuffer(batchSize);
+            }
+            if (buffer.isLingerExpired(System.currentTimeMillis(), config.getBatchLingerMs())) {
+                flushBuffer(Integer.MAX_VALUE);
+            }
+        } catch (SQLException e) {
+            handleWriteFailure(e, mark);
+        } catch (RuntimeException e) {
+            buffer.clear();
+            throw e;
         }
+    }
 
-        log.fine("Processing " + records.size() + " records");
+    /**
+     * Turn a failed flush into a retry or a task failure.
+     *
+     * Transient errors (deadlock, lock timeout, connection loss) are retried up to
+     * max.retries times: the records of this put() are dropped from the buffer and
+     * a RetriableException makes the framework redeliver them after an exponential
+     * backoff with jitter. Anything else fails the task.
+     */
+    private void handleWriteFailure(SQLException e, long mark) {
+        SqlErrorCategory category = writerPool.getDialect().classifyError(e);
+
+        if (category.isRetriable() && remainingRetries > 0) {
+            int attempt = config.getMaxRetries() - remainingRetries;
+            remainingRetries--;
+            long backoffMs = computeBackoffMs(attempt);
+            log.warning("Transient " + category + " error writing records, retrying in " + backoffMs +
+                    " ms (" + remainingRetries + " retries left): " + e.getMessage());
+
+            // The framework redelivers this put()'s records; keep only what was buffered before it
+            buffer.discardFrom(mark);
+            context.timeout(backoffMs);
+            throw new RetriableException("Transient error writing records: " + e.getMessage(), e);
+        }
 
-        // Group records by table and validity
-        Map<String, List<ProcessedRecord>> validRecordsByTable = new HashMap<>();
-        List<CorruptRecord> corruptRecords = new ArrayList<>();
+        log.log(Level.SEVERE, "Failed to write records to database (" + category + ")", e);
+        buffer.clear();
+        throw new ConnectException("Failed to write records", e);
+    }
 
+    /**
+     * Exponential backoff based on retry.backoff.ms, capped and with "equal jitter":
+     * a random delay between half and all of the exponential step.
+     */
+    private long computeBackoffMs(int attempt) {
+        long baseMs = config.getRetryBackoffMs();
+        long capMs = Math.max(baseMs, MAX_RETRY_BACKOFF_MS);
+        long stepMs = Math.min(capMs, baseMs << Math.min(attempt, 20));
+        long halfMs = stepMs / 2;
+        return halfMs + ThreadLocalRandom.current().nextLong(stepMs - halfMs + 1);
+    }
+
+    /**
+     * Process records and add them to the buffer, grouped later by table on flush.
+     */
+    private void bufferRecords(Collection<SinkRecord> records) {
         int skippedCount = 0;
         for (SinkRecord record : records) {
             try {
@@ -110,86 +200,142 @@ public class IidrCdcSinkTask extends SinkTask {
                 if (result.isSkipped()) {
                     // Record is for a different table, skip silently
                     skippedCount++;
-                    continue;
+                    buffer.addSkipped(record);
                 } else if (result.isCorrupt()) {
-                    corruptRecords.add(new CorruptRecord(record, result.getCorruptReason()));
+                    buffer.addCorrupt(new CorruptRecord(record, result.getCorruptReason(),
+                            headers.getTableName(), headers.getEntryType()));
                 } else {
-                    ProcessedRecord processed = result.getProcessedRecord();
-                    validRecordsByTable
-                            .computeIfAbsent(processed.getTargetTable(), k -> new ArrayList<>())
-                            .add(processed);
+                    buffer.add(record, result.getProcessedRecord());
                 }
             } catch (Exception e) {
                 log.log(Level.SEVERE, "Unexpected error processing record: " + e.getMessage(), e);
-                corruptRecords.add(new CorruptRecord(record, "Processing error: " + e.getMessage()));
+                buffer.addCorrupt(new CorruptRecord(record, "Processing error: " + e.getMessage()));
             }
         }
 
         if (skippedCount > 0) {
-            log.fine("Skipped " + skippedCount + " records not matching table.name.format: " + config.getTableNameFormat());
+            log.fine("Skipped " + skippedCount + " records not matching " + (config.getTableRoutes().isEmpty()
+                    ? "table.name.format: " + config.getTableNameFormat() : "table.routes"));
         }
+    }
+
+    /**
+     * Write up to maxRecords buffered records in one transaction per writer lane.
+     * On failure every lane is rolled back and the buffer is left untouched for
+     * the caller to decide what to keep.
+     */
+    private void flushBuffer(int maxRecords) throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        RecordBuffer.Chunk chunk = buffer.peek(maxRecords);
+        log.fine("Flushing " + chunk.getRecordCount() + " buffered records");
 
-        // Write valid records by table
         try {
-            for (Map.Entry<String, List<ProcessedRecord>> entry : validRecordsByTable.entrySet()) {
-                jdbcWriter.write(entry.getKey(), entry.getValue());
+            // Write valid records by table, in parallel across writer lanes
+            List<CorruptRecord> rejected = writerPool.write(chunk.getRecordsByTable());
+
+            // Handle corrupt records, including rows the database rejected, based on errors.tolerance
+            List<CorruptRecord> corruptRecords = chunk.getCorruptRecords();
+            if (!rejected.isEmpty()) {
+                corruptRecords = new ArrayList<>(corruptRecords);
+                corruptRecords.addAll(rejected);
             }
-
-            // Handle corrupt records based on errors.tolerance
             if (!corruptRecords.isEmpty()) {
                 handleCorruptRecords(corruptRecords);
             }
 
-            // Commit transaction
-            connection.commit();
+            // Commit transaction on every lane
+            writerPool.commit();
+            buffer.commit(chunk);
+            remainingRetries = config.getMaxRetries();
+
+        } catch (SQLException | RuntimeException e) {
+            writerPool.rollback();
+            throw e;
+        }
+    }
 
+    @Override
+    public void flush(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        try {
+            flushBuffer(Integer.MAX_VALUE);
         } catch (SQLException e) {
-            log.log(Level.SEVERE, "Failed to write records to database", e);
-            try {
-                connection.rollback();
-            } catch (SQLException rollbackEx) {
-                log.log(Level.SEVERE, "Failed to rollback transaction", rollbackEx);
-            }
-            throw new RuntimeException("Failed to write records", e);
+            // The framework rewinds to the last committed offsets and redelivers everything
+            log.log(Level.SEVERE, "Failed to flush buffered records", e);
+            buffer.clear();
+            throw new ConnectException("Failed to flush buffered records", e);
+        } catch (RuntimeException e) {
+            buffer.clear();
+            throw e;
         }
     }
 
+    /**
+     * Flush everything buffered and report only offsets that are durably written.
+     */
+    @Override
+    public Map<TopicPartition, OffsetAndMetadata> preCommit(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        flush(currentOffsets);
+        return buffer.getDurableOffsets();
+    }
+
+    @Override
+    public void close(Collection<TopicPartition> partitions) {
+        buffer.removePartitions(partitions);
+    }
+
     /**
      * Process a single SinkRecord into a ProcessingResult.
      * Validates headers, maps operation, and extracts data.
      */
     private ProcessingResult processRecord(SinkRecord record) {
+        // Decode the headers once; every step below reads the view
+        headers.read(record);
+
         // 0. Check if this record should be processed by this connector
         // (for multi-connector scenarios reading from the same topic)
-        if (!shouldProcessRecord(record)) {
+        TableNameResolver.Route route = tableNameResolver.route(record.topic(), headers.getTableName());
+        if (!route.isProcessed()) {
             return ProcessingResult.skip();
         }
 
         // 1. Validate required headers
-        String headerError = HeaderExtractor.validateRequiredHeaders(record);
+        String headerError = headers.validateRequired();
         if (headerError != null) {
             return ProcessingResult.corrupt(headerError);
         }
 
         // 2. Extract headers
-        String tableName = HeaderExtractor.extractTableName(record);
-        String entryType = HeaderExtractor.extractEntryType(record);
-        String timestamp = HeaderExtractor.extractTimestamp(record);
+        String timestamp = headers.getTimestamp();
 
         // 3. Map entry type to operation
-        CdcOperation operation = EntryTypeMapper.mapEntryType(entryType);
+        CdcOperation operation = headers.getOperation();
         if (operation == null) {
-            return ProcessingResult.corrupt("Unrecognized A_ENTTYP code: " + entryType);
+            return ProcessingResult.corrupt("Unrecognized A_ENTTYP code: " + headers.getEntryType());
+        }
+
+        // Convert payloads deferred by LazyConverter, now that the record is kept
+        SchemaAndValue key;
+        SchemaAndValue value;
+        try {
+            key = materialize(record.keySchema(), record.key());
+            // A DELETE is applied by its key, so its deferred value is never converted
+            value = operation == CdcOperation.DELETE && record.value() instanceof LazyValue
+                    ? SchemaAndValue.NULL : materialize(record.valueSchema(), record.value());
+        } catch (DataException e) {
+            return ProcessingResult.corrupt("Failed to convert record: " + e.getMessage());
         }
 
         // 4. Validate operation-specific requirements
         if (operation == CdcOperation.DELETE) {
-            if (record.key() == null) {
+            if (key.value() == null) {
                 return ProcessingResult.corrupt("DELETE operation requires a Kafka key");
             }
         } else {
             // INSERT, UPDATE, UPSERT require a value
-            if (record.value() == null) {
+            if (value.value() == null) {
                 return ProcessingResult.corrupt(operation + " operation requires a non-null value");
             }
         }
@@ -200,30 +346,26 @@ public class IidrCdcSinkTask extends SinkTask {
             isoTimestamp = timestampConverter.convertToIso8601(timestamp);
         }
 
-        // 6. Build target table name
-        String targetTable = resolveTargetTable(tableName, record.topic());
-
+        // 6. Target table name, resolved with the routing decision
         ProcessedRecord processed = new ProcessedRecord(
-                targetTable,
+                route.getTargetTable(),
                 operation,
-                record.key(),
-                record.value(),
-                record.keySchema(),
-                record.valueSchema(),
-                isoTimestamp
+                key.value(),
+                value.value(),
+                key.schema(),
+                value.schema(),
+                isoTimestamp,
+                record
         );
 
         return ProcessingResult.success(processed);
     }
 
-    /**
-     * Resolve target table name from format string.
-     */
-    private String resolveTargetTable(String tableName, String topic) {
-        String format = config.getTableNameFormat();
-        return format
-                .replace("${TableName}", tableName != null ? tableName : "")
-                .replace("${topic}", topic != null ? topic : "");
+    private static SchemaAndValue materialize(Schema schema, Object value) {
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).materialize();
+        }
+        return new SchemaAndValue(schema, value);
     }
 
     /**
@@ -238,9 +380,9 @@ public class IidrCdcSinkTask extends SinkTask {
             return;
         }
 
-        // Write to corrupt events table if enabled
+        // Write to corrupt events table if enabled, committed or rolled back with the data
         if (config.isCorruptEventsTableEnabled() && corruptEventWriter != null) {
-            corruptEventWriter.write(corruptRecords);
+            writerPool.writeCorrupt(corruptEventWriter, corruptRecords);
         }
 
         // Handle based on errors.tolerance setting
@@ -268,44 +410,18 @@ public class IidrCdcSinkTask extends SinkTask {
         log.info("Stopping IidrCdcSinkTask");
 
         try {
-            if (jdbcWriter != null) {
-                jdbcWriter.close();
-            }
             if (corruptEventWriter != null) {
                 corruptEventWriter.close();
             }
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
         } catch (SQLException e) {
             log.log(Level.SEVERE, "Error closing resources", e);
         }
-    }
-
-    /**
-     * Check if this record should be processed by this connector.
-     * When table.name.format is a literal (not containing ${TableName}),
-     * only process records where the TableName header matches the format.
-     * This allows multiple connectors to read from the same topic,
-     * each processing only their designated table's records.
-     */
-    private boolean shouldProcessRecord(SinkRecord record) {
-        String format = config.getTableNameFormat();
-
-        // If format contains ${TableName}, process all records (template mode)
-        if (format.contains("${TableName}")) {
-            return true;
+        if (writerPool != null) {
+            writerPool.close();
         }
-
-        // Literal mode: only process if TableName header matches the format
-        String tableName = HeaderExtractor.extractTableName(record);
-        if (tableName == null) {
-            return false;
+        if (connectionPool != null) {
+            connectionPool.close();
         }
-
-        // Resolve the format (in case it uses ${topic}) and compare
-        String resolvedFormat = format.replace("${topic}", record.topic() != null ? record.topic() : "");
-        return resolvedFormat.equals(tableName);
     }
 
     /**
@@ -0,0 +1,104 @@
+package com.example.kafka.connect.iidr.converter;
+
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigDef.Importance;
+import org.apache.kafka.common.config.ConfigDef.Type;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.storage.Converter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Converter that defers deserialization to the IIDR sink task.
+ *
+ * It wraps the converter named by {@code delegate} and hands the task a
+ * {@link LazyValue} holding the raw bytes instead of a converted value. The
+ * task routes records by their headers first and only converts the ones it
+ * keeps, so records of other tables on a shared topic are never parsed.
+ *
+ * Every other property is passed to the delegate, e.g.:
+ * <pre>
+ * value.converter=com.example.kafka.connect.iidr.converter.LazyConverter
+ * value.converter.delegate=org.apache.kafka.connect.json.JsonConverter
+ * value.converter.schemas.enable=false
+ * </pre>
+ *
+ * The schema of a lazy value is only known once it is converted, so
+ * transformations that read the value cannot be used with this converter.
+ */
+public class LazyConverter implements Converter, Closeable {
+
+    private static final Logger log = Logger.getLogger(LazyConverter.class.getName());
+
+    public static final String DELEGATE_CONFIG = "delegate";
+    private static final String DELEGATE_DOC = "Converter that deserializes the payload once the " +
+            "task has decided to keep the record";
+    public static final String DELEGATE_DEFAULT = "org.apache.kafka.connect.json.JsonConverter";
+
+    public static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(DELEGATE_CONFIG, Type.CLASS, DELEGATE_DEFAULT, Importance.HIGH, DELEGATE_DOC);
+
+    private Converter delegate;
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        AbstractConfig config = new AbstractConfig(CONFIG_DEF, configs);
+        Class<?> delegateClass = config.getClass(DELEGATE_CONFIG);
+        this.delegate = (Converter) Utils.newInstance(delegateClass);
+
+        Map<String, Object> delegateConfigs = new HashMap<>(configs);
+        delegateConfigs.remove(DELEGATE_CONFIG);
+        delegate.configure(delegateConfigs, isKey);
+        log.info("LazyConverter wrapping " + delegateClass.getName() + (isKey ? " for keys" : " for values"));
+    }
+
+    @Override
+    public byte[] fromConnectData(String topic, Schema schema, Object value) {
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).getBytes();
+        }
+        return delegate.fromConnectData(topic, schema, value);
+    }
+
+    @Override
+    public byte[] fromConnectData(String topic, Headers headers, Schema schema, Object value) {
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).getBytes();
+        }
+        return delegate.fromConnectData(topic, headers, schema, value);
+    }
+
+    @Override
+    public SchemaAndValue toConnectData(String topic, byte[] value) {
+        return toConnectData(topic, null, value);
+    }
+
+    @Override
+    public SchemaAndValue toConnectData(String topic, Headers headers, byte[] value) {
+        if (value == null) {
+            // Tombstones stay null, so DELETE records are recognized without converting
+            return SchemaAndValue.NULL;
+        }
+        return new SchemaAndValue(null, new LazyValue(delegate, topic, headers, value));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.kafka.connect.iidr.converter;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.storage.Converter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A record key or value whose bytes have not been converted yet, produced by
+ * {@link LazyConverter}. The task converts it with {@link #materialize()} only
+ * for records it keeps.
+ *
+ * Not thread-safe: a record is processed by one task thread.
+ */
+public class LazyValue {
+
+    private final Converter delegate;
+    private final String topic;
+    private final Headers headers;
+    private final byte[] bytes;
+    private SchemaAndValue converted;
+
+    LazyValue(Converter delegate, String topic, Headers headers, byte[] bytes) {
+        this.delegate = delegate;
+        this.topic = topic;
+        this.headers = headers;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Convert the bytes with the wrapped converter, once.
+     *
+     * @throws org.apache.kafka.connect.errors.DataException if the bytes cannot be converted
+     */
+    public SchemaAndValue materialize() {
+        if (converted == null) {
+            converted = delegate.toConnectData(topic, headers, bytes);
+        }
+        return converted;
+    }
+
+    /**
+     * The serialized bytes, as read from Kafka.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * The payload as UTF-8 text, e.g. the JSON of a corrupt event.
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Set-based apply path for large batches, offered by dialects whose driver can
+ * stream rows into the database faster than prepared-statement batches.
+ *
+ * Rows are passed as value arrays in column order. Callers guarantee that a
+ * batch holds at most one row per primary key.
+ */
+public interface BulkLoader {
+
+    /**
+     * Insert or update rows by primary key.
+     */
+    void upsert(Connection connection, String tableName, List<String> columns, List<String> pkColumns,
+                List<Object[]> rows) throws SQLException;
+
+    /**
+     * Delete rows by primary key; each key array holds the values of pkColumns.
+     */
+    void delete(Connection connection, String tableName, List<String> pkColumns,
+                List<Object[]> keys) throws SQLException;
+}
@@ -0,0 +1,211 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dialect for IBM Db2 (LUW).
+ *
+ * Upserts are MERGE statements over a VALUES source, so write.mode=multi_row
+ * can merge many rows per statement. In batch mode, jcc already sends a whole
+ * JDBC batch in one network flow.
+ */
+public class Db2Dialect extends GenericDialect {
+
+    @Override
+    public String getName() {
+        return "Db2";
+    }
+
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns) {
+        return buildUpsertSql(tableName, columns, pkColumns, 1);
+    }
+
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, int rows) {
+        if (pkColumns.isEmpty()) {
+            // Nothing to match on
+            return buildInsertSql(tableName, columns, rows);
+        }
+
+        StringBuilder on = new StringBuilder();
+        for (int i = 0; i < pkColumns.size(); i++) {
+            if (i > 0) {
+                on.append(" AND ");
+            }
+            on.append("t.").append(pkColumns.get(i)).append(" = s.").append(pkColumns.get(i));
+        }
+
+        List<String> nonPkColumns = new ArrayList<>(columns);
+        nonPkColumns.removeAll(pkColumns);
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("MERGE INTO ").append(tableName).append(" AS t USING (VALUES ")
+           .append(valueRows(columns.size(), rows)).append(") AS s (").append(String.join(", ", columns))
+           .append(") ON (").append(on).append(")");
+        if (!nonPkColumns.isEmpty()) {
+            // Assignment targets are unqualified in Db2
+            sql.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i = 0; i < nonPkColumns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(nonPkColumns.get(i)).append(" = s.").append(nonPkColumns.get(i));
+            }
+        }
+        sql.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("s.").append(columns.get(i));
+        }
+        sql.append(")");
+        return sql.toString();
+    }
+
+    @Override
+    public boolean supportsMultiRowValues() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        // Db2 allows 32767 parameter markers per statement
+        return 32767;
+    }
+
+    @Override
+    protected String compositeKeyMatch(List<String> pkColumns, int rows) {
+        return "(" + String.join(", ", pkColumns) + ") IN (VALUES " + valueRows(pkColumns.size(), rows) + ")";
+    }
+
+    @Override
+    public int getMaxDeleteKeys() {
+        return 1000;
+    }
+
+    @Override
+    protected String primaryKeyColumnSuffix() {
+        // SQL0542N: primary key columns must be declared NOT NULL
+        return " NOT NULL";
+    }
+
+    @Override
+    public String buildAlterTableSql(String tableName, List<String> missingColumns, ProcessedRecord sample) {
+        StringBuilder ddl = new StringBuilder();
+        ddl.append("ALTER TABLE ").append(tableName);
+        for (String column : missingColumns) {
+            Schema fieldSchema = sample.getValueSchema() != null ? sample.getValueSchema().field(column).schema() : null;
+            ddl.append(" ADD COLUMN ").append(column).append(" ").append(getColumnType(fieldSchema));
+        }
+        return ddl.toString();
+    }
+
+    @Override
+    public String getColumnType(Schema schema) {
+        if (schema == null) {
+            return "VARCHAR(1024)";
+        }
+        if (schema.name() != null) {
+            switch (schema.name()) {
+                case Timestamp.LOGICAL_NAME:
+                    return "TIMESTAMP";
+                case Date.LOGICAL_NAME:
+                    return "DATE";
+                case Time.LOGICAL_NAME:
+                    return "TIME";
+                case Decimal.LOGICAL_NAME:
+                    return "DECIMAL(31, " + schema.parameters().get(Decimal.SCALE_FIELD) + ")";
+                default:
+                    break;
+            }
+        }
+        switch (schema.type()) {
+            case INT8:
+            case INT16:
+                return "SMALLINT";
+            case INT32:
+                return "INTEGER";
+            case INT64:
+                return "BIGINT";
+            case FLOAT32:
+                return "REAL";
+            case FLOAT64:
+                return "DOUBLE";
+            case BOOLEAN:
+                return "SMALLINT";
+            case STRING:
+                return "VARCHAR(255)";
+            case BYTES:
+                return "BLOB";
+            default:
+                return "CLOB";
+        }
+    }
+
+    @Override
+    protected String inferColumnType(Object value) {
+        if (value instanceof Integer || value instanceof Long) {
+            return "BIGINT";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return "DOUBLE";
+        }
+        if (value instanceof Boolean) {
+            return "SMALLINT";
+        }
+        if (value instanceof String && ((String) value).length() > 255) {
+            return "CLOB";
+        }
+        return "VARCHAR(1024)";
+    }
+
+    @Override
+    public String normalizeIdentifierForMetadata(String identifier) {
+        // Db2 stores unquoted identifiers in uppercase
+        return identifier != null ? identifier.toUpperCase() : null;
+    }
+
+    @Override
+    protected SqlErrorCategory classifyVendorError(SQLException e) {
+        // jcc reports the SQLCODE as the vendor error code
+        switch (e.getErrorCode()) {
+            case -911:  // deadlock or lock timeout, transaction rolled back
+            case -913:  // deadlock or lock timeout, statement rolled back
+            case -904:  // resource unavailable
+            case -1218: // no buffer pool pages available
+                return SqlErrorCategory.TRANSIENT;
+            case -1224: // database agent could not be started or was terminated
+            case -30080: // communication error
+            case -30081: // communication error detected by TCP/IP
+            case -4499: // jcc: connection failure
+                return SqlErrorCategory.CONNECTION;
+            case -180:  // invalid datetime string syntax
+            case -181:  // invalid datetime value
+            case -302:  // value too large for the target column
+            case -303:  // value not assignable to an incompatible column
+            case -404:  // string too long for the column
+            case -407:  // NULL into a NOT NULL column
+            case -413:  // numeric overflow during conversion
+            case -420:  // invalid character in a string cast to numeric
+            case -433:  // value too long
+            case -530:  // foreign key has no matching parent key
+            case -532:  // delete restricted by a foreign key
+            case -545:  // check constraint violated
+            case -803:  // duplicate key
+                return SqlErrorCategory.DATA;
+            default:
+                return null;
+        }
+    }
+}
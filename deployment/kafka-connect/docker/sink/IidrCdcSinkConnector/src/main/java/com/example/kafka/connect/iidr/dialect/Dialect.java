@@ -23,6 +23,12 @@ public interface Dialect {
      */
     String buildInsertSql(String tableName, List<String> columns);
 
+    /**
+     * Build a multi-row INSERT SQL statement binding the given number of rows.
+     * Only called when {@link #supportsMultiRowValues()} is true.
+     */
+    String buildInsertSql(String tableName, List<String> columns, int rows);
+
     /**
      * Build an UPDATE SQL statement for the given table and columns.
      */
@@ -33,11 +39,68 @@ public interface Dialect {
      */
     String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns);
 
+    /**
+     * Build a multi-row UPSERT SQL statement binding the given number of rows.
+     * Only called when {@link #supportsMultiRowValues()} is true.
+     */
+    String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, int rows);
+
+    /**
+     * Whether INSERT/UPSERT statements may carry several rows in one VALUES list.
+     */
+    boolean supportsMultiRowValues();
+
+    /**
+     * Maximum number of bind parameters the database accepts in one statement.
+     */
+    int getMaxBindParameters();
+
+    /**
+     * Whether the dialect can bind a whole column of a batch as one array parameter
+     * (write.mode=unnest).
+     */
+    boolean supportsArrayBinding();
+
+    /**
+     * Build an UPSERT that reads its rows from one array parameter per column.
+     * Only called when {@link #supportsArrayBinding()} is true.
+     *
+     * @param columnTypes database type names of the columns, as reported by DatabaseMetaData
+     */
+    String buildArrayUpsertSql(String tableName, List<String> columns, List<String> columnTypes,
+                               List<String> pkColumns);
+
+    /**
+     * Build a DELETE that matches keys from one array parameter per PK column.
+     * Only called when {@link #supportsArrayBinding()} is true.
+     */
+    String buildArrayDeleteSql(String tableName, List<String> pkColumns, List<String> pkTypes);
+
+    /**
+     * Create the array parameter for one column's values.
+     */
+    java.sql.Array createArray(Connection connection, Object[] values) throws SQLException;
+
+    /**
+     * Bulk apply path for large batches (bulk.threshold), or null if the dialect has none.
+     */
+    BulkLoader getBulkLoader();
+
     /**
      * Build a DELETE SQL statement for the given table and columns.
      */
     String buildDeleteSql(String tableName, List<String> pkColumns);
 
+    /**
+     * Build a DELETE statement matching any of the given number of primary keys.
+     */
+    String buildDeleteSql(String tableName, List<String> pkColumns, int rows);
+
+    /**
+     * Maximum number of keys matched by one set-based DELETE.
+     */
+    int getMaxDeleteKeys();
+
     /**
      * Build a CREATE TABLE statement for the given table and record schema.
      */
@@ -58,6 +121,12 @@ public interface Dialect {
      */
     String getColumnType(org.apache.kafka.connect.data.Schema schema);
 
+    /**
+     * Classify a database error by SQLState and vendor error code so the caller
+     * can tell transient failures (deadlocks, connection loss) from permanent ones.
+     */
+    SqlErrorCategory classifyError(SQLException e);
+
     /**
      * Normalize an identifier (table or column name) for metadata queries.
      * PostgreSQL stores unquoted identifiers in lowercase, so this method
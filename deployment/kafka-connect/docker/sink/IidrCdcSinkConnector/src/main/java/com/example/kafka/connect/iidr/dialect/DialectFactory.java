@@ -26,8 +26,17 @@ public class DialectFactory {
         if ("PostgreSQL".equalsIgnoreCase(dbProductName)) {
             return new PostgreSqlDialect();
         }
+        if ("Oracle".equalsIgnoreCase(dbProductName)) {
+            return new OracleDialect();
+        }
+        if (dbProductName != null && dbProductName.startsWith("Microsoft SQL Server")) {
+            return new SqlServerDialect();
+        }
+        if (dbProductName != null && dbProductName.toUpperCase().startsWith("DB2")) {
+            // jcc reports e.g. "DB2/LINUXX8664" for Db2 LUW
+            return new Db2Dialect();
+        }
         // Add more dialects here for other databases
-        // e.g., Oracle, SQL Server
 
         log.warning("No specific dialect found for '" + dbProductName + "'. " +
                     "Using generic dialect with limited functionality.");
@@ -3,6 +3,15 @@ package com.example.kafka.connect.iidr.dialect;
 import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
 import org.apache.kafka.connect.data.Schema;
 
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -21,9 +30,28 @@ public class GenericDialect implements Dialect {
 
     @Override
     public String buildInsertSql(String tableName, List<String> columns) {
+        return buildInsertSql(tableName, columns, 1);
+    }
+
+    @Override
+    public String buildInsertSql(String tableName, List<String> columns, int rows) {
         String cols = String.join(", ", columns);
-        String placeholders = String.join(", ", java.util.Collections.nCopies(columns.size(), "?"));
-        return String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, cols, placeholders);
+        return String.format("INSERT INTO %s (%s) VALUES %s", tableName, cols, valueRows(columns.size(), rows));
+    }
+
+    /**
+     * Placeholder rows for a VALUES list: "(?, ?), (?, ?)".
+     */
+    protected String valueRows(int columns, int rows) {
+        String row = "(" + String.join(", ", java.util.Collections.nCopies(columns, "?")) + ")";
+        StringBuilder sb = new StringBuilder(rows * (row.length() + 2));
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(row);
+        }
+        return sb.toString();
     }
 
     @Override
@@ -61,16 +89,92 @@ public class GenericDialect implements Dialect {
         return String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, cols, placeholders);
     }
 
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, int rows) {
+        if (rows != 1) {
+            throw new UnsupportedOperationException(getName() + " dialect does not support multi-row upserts");
+        }
+        return buildUpsertSql(tableName, columns, pkColumns);
+    }
+
+    @Override
+    public boolean supportsMultiRowValues() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsArrayBinding() {
+        return false;
+    }
+
+    @Override
+    public String buildArrayUpsertSql(String tableName, List<String> columns, List<String> columnTypes,
+                                      List<String> pkColumns) {
+        throw new UnsupportedOperationException(getName() + " dialect does not support array binding");
+    }
+
+    @Override
+    public String buildArrayDeleteSql(String tableName, List<String> pkColumns, List<String> pkTypes) {
+        throw new UnsupportedOperationException(getName() + " dialect does not support array binding");
+    }
+
+    @Override
+    public java.sql.Array createArray(java.sql.Connection connection, Object[] values) throws SQLException {
+        throw new java.sql.SQLFeatureNotSupportedException(getName() + " dialect does not support array binding");
+    }
+
+    @Override
+    public BulkLoader getBulkLoader() {
+        return null;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        // Conservative default for databases without a known limit
+        return 2000;
+    }
+
     @Override
     public String buildDeleteSql(String tableName, List<String> pkColumns) {
-        StringBuilder whereClause = new StringBuilder();
+        return buildDeleteSql(tableName, pkColumns, 1);
+    }
+
+    @Override
+    public String buildDeleteSql(String tableName, List<String> pkColumns, int rows) {
+        String whereClause;
+        if (rows == 1) {
+            whereClause = keyMatch(pkColumns);
+        } else if (pkColumns.size() == 1) {
+            whereClause = pkColumns.get(0) + " IN (" + String.join(", ", java.util.Collections.nCopies(rows, "?")) + ")";
+        } else {
+            whereClause = compositeKeyMatch(pkColumns, rows);
+        }
+        return String.format("DELETE FROM %s WHERE %s", tableName, whereClause);
+    }
+
+    /**
+     * Condition matching any of several composite keys. Row-value IN lists are
+     * not portable, so the generic form is an OR of per-key conditions.
+     */
+    protected String compositeKeyMatch(List<String> pkColumns, int rows) {
+        String match = "(" + keyMatch(pkColumns) + ")";
+        return String.join(" OR ", java.util.Collections.nCopies(rows, match));
+    }
+
+    private String keyMatch(List<String> pkColumns) {
+        StringBuilder match = new StringBuilder();
         for (int i = 0; i < pkColumns.size(); i++) {
             if (i > 0) {
-                whereClause.append(" AND ");
+                match.append(" AND ");
             }
-            whereClause.append(pkColumns.get(i)).append(" = ?");
+            match.append(pkColumns.get(i)).append(" = ?");
         }
-        return String.format("DELETE FROM %s WHERE %s", tableName, whereClause);
+        return match.toString();
+    }
+
+    @Override
+    public int getMaxDeleteKeys() {
+        return 500;
     }
 
 
@@ -147,6 +251,9 @@ public class GenericDialect implements Dialect {
                 columnType = inferColumnType(valueMap.get(columnName));
             }
             ddl.append(columnName).append(" ").append(columnType);
+            if (pkColumns != null && pkColumns.contains(columnName)) {
+                ddl.append(primaryKeyColumnSuffix());
+            }
         }
 
         // Add primary key constraint if specified
@@ -158,6 +265,14 @@ public class GenericDialect implements Dialect {
         return ddl.toString();
     }
 
+    /**
+     * Appended to primary key column definitions in CREATE TABLE, for databases
+     * that do not make key columns NOT NULL implicitly.
+     */
+    protected String primaryKeyColumnSuffix() {
+        return "";
+    }
+
     /**
      * Infer column type from a Java value (for schemaless data).
      */
@@ -219,4 +334,67 @@ public class GenericDialect implements Dialect {
                 return "VARCHAR(1024)";
         }
     }
+
+    @Override
+    public SqlErrorCategory classifyError(SQLException e) {
+        // Drivers often wrap the real cause, e.g. in a BatchUpdateException's next exception
+        int depth = 0;
+        for (Throwable t = e; t != null && depth < 10; depth++) {
+            if (t instanceof SQLException) {
+                SQLException sqlException = (SQLException) t;
+                SqlErrorCategory category = classifyVendorError(sqlException);
+                if (category == null) {
+                    category = classifyStandardError(sqlException);
+                }
+                if (category != SqlErrorCategory.FATAL) {
+                    return category;
+                }
+                t = sqlException.getNextException() != null ? sqlException.getNextException() : t.getCause();
+            } else {
+                t = t.getCause();
+            }
+        }
+        return SqlErrorCategory.FATAL;
+    }
+
+    /**
+     * Classify by database-specific error code or SQLState.
+     *
+     * @return the category, or null to fall back to standard SQLState classes
+     */
+    protected SqlErrorCategory classifyVendorError(SQLException e) {
+        return null;
+    }
+
+    private SqlErrorCategory classifyStandardError(SQLException e) {
+        if (e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException) {
+            return SqlErrorCategory.CONNECTION;
+        }
+        if (e instanceof SQLTransactionRollbackException
+                || e instanceof SQLTimeoutException
+                || e instanceof SQLTransientException) {
+            return SqlErrorCategory.TRANSIENT;
+        }
+        if (e instanceof SQLIntegrityConstraintViolationException || e instanceof SQLDataException) {
+            return SqlErrorCategory.DATA;
+        }
+
+        String sqlState = e.getSQLState();
+        if (sqlState == null || sqlState.length() < 2) {
+            return SqlErrorCategory.FATAL;
+        }
+        switch (sqlState.substring(0, 2)) {
+            case "08": // connection exception
+                return SqlErrorCategory.CONNECTION;
+            case "40": // transaction rollback: serialization failure, deadlock
+                return SqlErrorCategory.TRANSIENT;
+            case "22": // data exception
+            case "23": // integrity constraint violation
+                return SqlErrorCategory.DATA;
+            default:
+                return SqlErrorCategory.FATAL;
+        }
+    }
 }
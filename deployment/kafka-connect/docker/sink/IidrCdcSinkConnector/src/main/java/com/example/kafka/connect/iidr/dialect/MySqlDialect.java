@@ -1,12 +1,15 @@
 package com.example.kafka.connect.iidr.dialect;
 
+import java.sql.SQLException;
 import java.util.List;
 
 /**
- * Dialect for MySQL.
+ * Dialect for MySQL and MariaDB.
  */
 public class MySqlDialect extends GenericDialect {
 
+    private final BulkLoader bulkLoader = new MySqlLoadDataLoader(this);
+
     @Override
     public String getName() {
         return "MySQL";
@@ -14,8 +17,20 @@ public class MySqlDialect extends GenericDialect {
 
     @Override
     public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns) {
+        return buildUpsertSql(tableName, columns, pkColumns, 1);
+    }
+
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, int rows) {
+        return buildUpsertSql(tableName, columns, pkColumns, "VALUES " + valueRows(columns.size(), rows));
+    }
+
+    /**
+     * Build an INSERT ... ON DUPLICATE KEY UPDATE upsert whose rows come from the
+     * given source, e.g. a VALUES list or a SELECT from a staging table.
+     */
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, String source) {
         String cols = String.join(", ", columns);
-        String placeholders = String.join(", ", java.util.Collections.nCopies(columns.size(), "?"));
 
         StringBuilder updateClause = new StringBuilder();
         for (int i = 0; i < columns.size(); i++) {
@@ -26,8 +41,34 @@ public class MySqlDialect extends GenericDialect {
             updateClause.append(col).append(" = VALUES(").append(col).append(")");
         }
 
-        return String.format("INSERT INTO %s (%s) VALUES (%s) ON DUPLICATE KEY UPDATE %s",
-                tableName, cols, placeholders, updateClause);
+        return String.format("INSERT INTO %s (%s) %s ON DUPLICATE KEY UPDATE %s",
+                tableName, cols, source, updateClause);
+    }
+
+    @Override
+    public BulkLoader getBulkLoader() {
+        return bulkLoader;
+    }
+
+    @Override
+    protected String compositeKeyMatch(List<String> pkColumns, int rows) {
+        return "(" + String.join(", ", pkColumns) + ") IN (" + valueRows(pkColumns.size(), rows) + ")";
+    }
+
+    @Override
+    public int getMaxDeleteKeys() {
+        return 1000;
+    }
+
+    @Override
+    public boolean supportsMultiRowValues() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        // Prepared statement placeholders are counted in an unsigned 16-bit field
+        return 65535;
     }
 
     @Override
@@ -58,4 +99,35 @@ public class MySqlDialect extends GenericDialect {
                 return "TEXT";
         }
     }
+
+    @Override
+    protected SqlErrorCategory classifyVendorError(SQLException e) {
+        switch (e.getErrorCode()) {
+            case 1205: // ER_LOCK_WAIT_TIMEOUT
+            case 1213: // ER_LOCK_DEADLOCK
+            case 1614: // ER_XA_RBDEADLOCK
+            case 3024: // ER_QUERY_TIMEOUT
+            case 1969: // MariaDB ER_STATEMENT_TIMEOUT
+                return SqlErrorCategory.TRANSIENT;
+            case 1040: // ER_CON_COUNT_ERROR
+            case 1053: // ER_SERVER_SHUTDOWN
+            case 1927: // MariaDB ER_CONNECTION_KILLED
+            case 2002: // CR_CONNECTION_ERROR
+            case 2003: // CR_CONN_HOST_ERROR
+            case 2006: // CR_SERVER_GONE_ERROR
+            case 2013: // CR_SERVER_LOST
+                return SqlErrorCategory.CONNECTION;
+            case 1048: // ER_BAD_NULL_ERROR
+            case 1062: // ER_DUP_ENTRY
+            case 1264: // ER_WARN_DATA_OUT_OF_RANGE
+            case 1292: // ER_TRUNCATED_WRONG_VALUE
+            case 1366: // ER_TRUNCATED_WRONG_VALUE_FOR_FIELD
+            case 1406: // ER_DATA_TOO_LONG
+            case 1451: // ER_ROW_IS_REFERENCED_2
+            case 1452: // ER_NO_REFERENCED_ROW_2
+                return SqlErrorCategory.DATA;
+            default:
+                return null;
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * MySQL/MariaDB bulk loader: streams rows as tab-separated text with
+ * LOAD DATA LOCAL INFILE into a temporary staging table, through the driver's
+ * local-infile stream hook (no file on disk), then applies them with one
+ * INSERT ... SELECT ... ON DUPLICATE KEY UPDATE, or one multi-table DELETE.
+ *
+ * Requires local_infile=ON on the server and allowLoadLocalInfile=true in
+ * the connection URL.
+ */
+public class MySqlLoadDataLoader extends StagingBulkLoader {
+
+    private static final Logger log = Logger.getLogger(MySqlLoadDataLoader.class.getName());
+
+    private static final byte[] NULL_FIELD = {'\\', 'N'};
+
+    private final MySqlDialect dialect;
+
+    public MySqlLoadDataLoader(MySqlDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void upsert(Connection connection, String tableName, List<String> columns, List<String> pkColumns,
+                       List<Object[]> rows) throws SQLException {
+        String stage = stagingTableName(tableName, columns);
+        String cols = String.join(", ", columns);
+
+        createStagingTable(connection, stage, tableName, cols);
+        loadRows(connection, stage, cols, rows);
+        execute(connection, dialect.buildUpsertSql(tableName, columns, pkColumns,
+                "SELECT " + cols + " FROM " + stage));
+        // DELETE rather than TRUNCATE, which is DDL in MySQL
+        execute(connection, "DELETE FROM " + stage);
+    }
+
+    @Override
+    public void delete(Connection connection, String tableName, List<String> pkColumns,
+                       List<Object[]> keys) throws SQLException {
+        String stage = stagingTableName(tableName, pkColumns);
+        String cols = String.join(", ", pkColumns);
+
+        StringBuilder join = new StringBuilder();
+        for (String col : pkColumns) {
+            if (join.length() > 0) {
+                join.append(" AND ");
+            }
+            join.append("t.").append(col).append(" = s.").append(col);
+        }
+
+        createStagingTable(connection, stage, tableName, cols);
+        loadRows(connection, stage, cols, keys);
+        execute(connection, "DELETE t FROM " + tableName + " t JOIN " + stage + " s ON " + join);
+        execute(connection, "DELETE FROM " + stage);
+    }
+
+    private void createStagingTable(Connection connection, String stage, String tableName, String cols)
+            throws SQLException {
+        // CREATE TEMPORARY TABLE does not commit the surrounding transaction
+        execute(connection, "CREATE TEMPORARY TABLE IF NOT EXISTS " + stage
+                + " SELECT " + cols + " FROM " + tableName + " LIMIT 0");
+    }
+
+    private void loadRows(Connection connection, String stage, String cols, List<Object[]> rows)
+            throws SQLException {
+        // CHARACTER SET binary: the stream is UTF-8 text with raw bytes for binary values
+        String sql = "LOAD DATA LOCAL INFILE 'iidr-stream' INTO TABLE " + stage
+                + " CHARACTER SET binary FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\'"
+                + " LINES TERMINATED BY '\\n' (" + cols + ")";
+        log.fine("LOAD DATA SQL: " + sql + " (" + rows.size() + " rows)");
+
+        try (Statement stmt = connection.createStatement()) {
+            setLocalInfileInputStream(stmt, new ByteArrayInputStream(encodeRows(rows)));
+            stmt.execute(sql);
+        }
+    }
+
+    private byte[] encodeRows(List<Object[]> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows.size() * 64);
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    out.write('\t');
+                }
+                Object value = row[i];
+                if (value == null) {
+                    out.write(NULL_FIELD, 0, NULL_FIELD.length);
+                } else if (value instanceof byte[]) {
+                    writeEscaped(out, (byte[]) value);
+                } else {
+                    writeEscaped(out, formatValue(value).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private void writeEscaped(ByteArrayOutputStream out, byte[] bytes) {
+        // UTF-8 continuation bytes never collide with these single-byte characters
+        for (byte b : bytes) {
+            switch (b) {
+                case '\\':
+                    out.write('\\');
+                    out.write('\\');
+                    break;
+                case '\t':
+                    out.write('\\');
+                    out.write('t');
+                    break;
+                case '\n':
+                    out.write('\\');
+                    out.write('n');
+                    break;
+                case '\r':
+                    out.write('\\');
+                    out.write('r');
+                    break;
+                case 0:
+                    out.write('\\');
+                    out.write('0');
+                    break;
+                default:
+                    out.write(b);
+            }
+        }
+    }
+
+    @Override
+    protected String formatValue(Object value) {
+        if (value instanceof Boolean) {
+            // LOAD DATA does not convert 'true'/'false' for numeric columns
+            return (Boolean) value ? "1" : "0";
+        }
+        return super.formatValue(value);
+    }
+
+    /**
+     * Hand the stream to the driver: MySQL Connector/J directly, other drivers
+     * (e.g. MariaDB Connector/J) through the same-named method if they have one.
+     */
+    private void setLocalInfileInputStream(Statement stmt, InputStream stream) throws SQLException {
+        if (stmt.isWrapperFor(JdbcStatement.class)) {
+            stmt.unwrap(JdbcStatement.class).setLocalInfileInputStream(stream);
+            return;
+        }
+        try {
+            Method method = stmt.getClass().getMethod("setLocalInfileInputStream", InputStream.class);
+            method.invoke(stmt, stream);
+        } catch (ReflectiveOperationException e) {
+            throw new SQLFeatureNotSupportedException(
+                    "JDBC driver does not support streaming LOAD DATA LOCAL INFILE: " + stmt.getClass().getName(), e);
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
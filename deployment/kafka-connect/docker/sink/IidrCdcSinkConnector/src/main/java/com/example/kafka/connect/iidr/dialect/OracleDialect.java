@@ -0,0 +1,195 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+import org.apache.kafka.connect.data.Schema;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dialect for Oracle Database.
+ *
+ * Upserts are MERGE statements over a single-row SELECT ... FROM dual. Oracle
+ * has no multi-row VALUES, but ojdbc sends a JDBC batch of one statement as a
+ * single array DML round-trip, so the default batch write mode is the fast path.
+ */
+public class OracleDialect extends GenericDialect {
+
+    @Override
+    public String getName() {
+        return "Oracle";
+    }
+
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns) {
+        if (pkColumns.isEmpty()) {
+            // Nothing to match on
+            return buildInsertSql(tableName, columns);
+        }
+
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                source.append(", ");
+            }
+            source.append("? AS ").append(columns.get(i));
+        }
+
+        StringBuilder on = new StringBuilder();
+        for (int i = 0; i < pkColumns.size(); i++) {
+            if (i > 0) {
+                on.append(" AND ");
+            }
+            on.append("t.").append(pkColumns.get(i)).append(" = s.").append(pkColumns.get(i));
+        }
+
+        List<String> nonPkColumns = new ArrayList<>(columns);
+        nonPkColumns.removeAll(pkColumns);
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("MERGE INTO ").append(tableName).append(" t USING (SELECT ").append(source)
+           .append(" FROM dual) s ON (").append(on).append(")");
+        if (!nonPkColumns.isEmpty()) {
+            // PK columns cannot be updated by MERGE, and there is nothing else to update otherwise
+            sql.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i = 0; i < nonPkColumns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("t.").append(nonPkColumns.get(i)).append(" = s.").append(nonPkColumns.get(i));
+            }
+        }
+        sql.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("s.").append(columns.get(i));
+        }
+        sql.append(")");
+        return sql.toString();
+    }
+
+    @Override
+    protected String compositeKeyMatch(List<String> pkColumns, int rows) {
+        return "(" + String.join(", ", pkColumns) + ") IN (" + valueRows(pkColumns.size(), rows) + ")";
+    }
+
+    @Override
+    public int getMaxDeleteKeys() {
+        // ORA-01795: maximum number of expressions in a list is 1000
+        return 1000;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        return 65535;
+    }
+
+    @Override
+    public String buildAlterTableSql(String tableName, List<String> missingColumns, ProcessedRecord sample) {
+        // A single statement: Oracle rejects statement separators over JDBC
+        StringBuilder ddl = new StringBuilder();
+        ddl.append("ALTER TABLE ").append(tableName).append(" ADD (");
+        for (int i = 0; i < missingColumns.size(); i++) {
+            if (i > 0) {
+                ddl.append(", ");
+            }
+            String column = missingColumns.get(i);
+            Schema fieldSchema = sample.getValueSchema() != null ? sample.getValueSchema().field(column).schema() : null;
+            ddl.append(column).append(" ").append(getColumnType(fieldSchema));
+        }
+        ddl.append(")");
+        return ddl.toString();
+    }
+
+    @Override
+    public String getColumnType(Schema schema) {
+        if (schema == null) {
+            return "VARCHAR2(4000)";
+        }
+        switch (schema.type()) {
+            case INT8:
+                return "NUMBER(3)";
+            case INT16:
+                return "NUMBER(5)";
+            case INT32:
+                return "NUMBER(10)";
+            case INT64:
+                return "NUMBER(19)";
+            case FLOAT32:
+                return "BINARY_FLOAT";
+            case FLOAT64:
+                return "BINARY_DOUBLE";
+            case BOOLEAN:
+                return "NUMBER(1)";
+            case STRING:
+                return "VARCHAR2(4000)";
+            case BYTES:
+                return "BLOB";
+            default:
+                return "CLOB";
+        }
+    }
+
+    @Override
+    protected String inferColumnType(Object value) {
+        if (value instanceof Integer || value instanceof Long) {
+            return "NUMBER(19)";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return "BINARY_DOUBLE";
+        }
+        if (value instanceof Boolean) {
+            return "NUMBER(1)";
+        }
+        if (value instanceof String && ((String) value).length() > 4000) {
+            return "CLOB";
+        }
+        return "VARCHAR2(4000)";
+    }
+
+    @Override
+    public String normalizeIdentifierForMetadata(String identifier) {
+        // Oracle stores unquoted identifiers in uppercase
+        return identifier != null ? identifier.toUpperCase() : null;
+    }
+
+    @Override
+    protected SqlErrorCategory classifyVendorError(SQLException e) {
+        switch (e.getErrorCode()) {
+            case 54:    // ORA-00054 resource busy (NOWAIT)
+            case 60:    // ORA-00060 deadlock detected
+            case 1013:  // ORA-01013 user requested cancel (query timeout)
+            case 8177:  // ORA-08177 can't serialize access
+            case 30006: // ORA-30006 resource busy (WAIT timeout)
+                return SqlErrorCategory.TRANSIENT;
+            case 1033:  // ORA-01033 initialization or shutdown in progress
+            case 1034:  // ORA-01034 not available
+            case 1089:  // ORA-01089 immediate shutdown in progress
+            case 3113:  // ORA-03113 end-of-file on communication channel
+            case 3114:  // ORA-03114 not connected
+            case 12514: // ORA-12514 listener does not know of service
+            case 12541: // ORA-12541 no listener
+            case 17002: // ojdbc I/O error
+            case 17008: // ojdbc closed connection
+                return SqlErrorCategory.CONNECTION;
+            case 1:     // ORA-00001 unique constraint violated
+            case 1400:  // ORA-01400 cannot insert NULL
+            case 1438:  // ORA-01438 value larger than specified precision
+            case 1722:  // ORA-01722 invalid number
+            case 1840:  // ORA-01840 input value not long enough for date format
+            case 1841:  // ORA-01841 year out of range
+            case 1843:  // ORA-01843 not a valid month
+            case 1861:  // ORA-01861 literal does not match format string
+            case 2290:  // ORA-02290 check constraint violated
+            case 2291:  // ORA-02291 parent key not found
+            case 2292:  // ORA-02292 child record found
+            case 12899: // ORA-12899 value too large for column
+                return SqlErrorCategory.DATA;
+            default:
+                return null;
+        }
+    }
+}
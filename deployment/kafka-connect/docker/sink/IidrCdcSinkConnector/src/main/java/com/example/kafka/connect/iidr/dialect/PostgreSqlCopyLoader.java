@@ -0,0 +1,140 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * PostgreSQL bulk loader: streams rows with COPY ... FROM STDIN (CSV) into a
+ * temporary staging table, then applies them with one INSERT ... SELECT ...
+ * ON CONFLICT DO UPDATE, or one DELETE ... USING for deletes.
+ *
+ * Staging tables are created on first use in each session with only the
+ * batch's columns, and emptied after every apply (and on commit).
+ */
+public class PostgreSqlCopyLoader extends StagingBulkLoader {
+
+    private static final Logger log = Logger.getLogger(PostgreSqlCopyLoader.class.getName());
+
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+
+    private static final DateTimeFormatter OFFSET_FORMAT = DateTimeFormatter.ofPattern("xxx");
+
+    private final PostgreSqlDialect dialect;
+
+    public PostgreSqlCopyLoader(PostgreSqlDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void upsert(Connection connection, String tableName, List<String> columns, List<String> pkColumns,
+                       List<Object[]> rows) throws SQLException {
+        String stage = stagingTableName(tableName, columns);
+        String cols = String.join(", ", columns);
+
+        createStagingTable(connection, stage, tableName, cols);
+        copyRows(connection, stage, cols, rows);
+        execute(connection, dialect.buildUpsertSql(tableName, columns, pkColumns,
+                "SELECT " + cols + " FROM " + stage));
+        execute(connection, "TRUNCATE " + stage);
+    }
+
+    @Override
+    public void delete(Connection connection, String tableName, List<String> pkColumns,
+                       List<Object[]> keys) throws SQLException {
+        String stage = stagingTableName(tableName, pkColumns);
+        String cols = String.join(", ", pkColumns);
+
+        StringBuilder join = new StringBuilder();
+        for (String col : pkColumns) {
+            if (join.length() > 0) {
+                join.append(" AND ");
+            }
+            join.append("t.").append(col).append(" = s.").append(col);
+        }
+
+        createStagingTable(connection, stage, tableName, cols);
+        copyRows(connection, stage, cols, keys);
+        execute(connection, "DELETE FROM " + tableName + " t USING " + stage + " s WHERE " + join);
+        execute(connection, "TRUNCATE " + stage);
+    }
+
+    private void createStagingTable(Connection connection, String stage, String tableName, String cols)
+            throws SQLException {
+        // Created from a query rather than LIKE, so NOT NULL constraints on other columns do not apply
+        execute(connection, "CREATE TEMPORARY TABLE IF NOT EXISTS " + stage + " ON COMMIT DELETE ROWS AS "
+                + "SELECT " + cols + " FROM " + tableName + " WITH NO DATA");
+    }
+
+    private void copyRows(Connection connection, String stage, String cols, List<Object[]> rows)
+            throws SQLException {
+        String sql = "COPY " + stage + " (" + cols + ") FROM STDIN WITH (FORMAT csv)";
+        log.fine("COPY SQL: " + sql + " (" + rows.size() + " rows)");
+
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        try {
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+            for (Object[] row : rows) {
+                appendCsvRow(buffer, row);
+                if (buffer.length() >= COPY_BUFFER_CHARS) {
+                    writeToCopy(copyIn, buffer);
+                }
+            }
+            writeToCopy(copyIn, buffer);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private void appendCsvRow(StringBuilder buffer, Object[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            String text = formatValue(row[i]);
+            if (text != null) {
+                // Always quoted: an unquoted empty field is NULL in CSV format
+                buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+            }
+        }
+        buffer.append('\n');
+    }
+
+    @Override
+    protected String formatTimestamp(ZonedDateTime timestamp) {
+        // With its offset, as PgJDBC sends a bound timestamp, so timestamptz columns
+        // keep the instant and timestamp columns the JVM wall-clock time
+        return super.formatTimestamp(timestamp) + OFFSET_FORMAT.format(timestamp);
+    }
+
+    @Override
+    protected String formatBytes(byte[] bytes) {
+        return "\\x" + super.formatBytes(bytes);
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
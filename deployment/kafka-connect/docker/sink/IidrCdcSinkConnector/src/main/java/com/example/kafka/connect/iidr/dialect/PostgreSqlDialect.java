@@ -1,5 +1,8 @@
 package com.example.kafka.connect.iidr.dialect;
 
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -8,6 +11,8 @@ import java.util.stream.Collectors;
  */
 public class PostgreSqlDialect extends GenericDialect {
 
+    private final PostgreSqlCopyLoader bulkLoader = new PostgreSqlCopyLoader(this);
+
     @Override
     public String getName() {
         return "PostgreSQL";
@@ -15,27 +20,120 @@ public class PostgreSqlDialect extends GenericDialect {
 
     @Override
     public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns) {
+        return buildUpsertSql(tableName, columns, pkColumns, 1);
+    }
+
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, int rows) {
+        return buildUpsertSql(tableName, columns, pkColumns, "VALUES " + valueRows(columns.size(), rows));
+    }
+
+    /**
+     * Build an INSERT ... ON CONFLICT upsert whose rows come from the given source,
+     * e.g. a VALUES list or a SELECT from a staging table.
+     */
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, String source) {
         String cols = String.join(", ", columns);
         String pkCols = String.join(", ", pkColumns);
-        String placeholders = String.join(", ", java.util.Collections.nCopies(columns.size(), "?"));
 
         List<String> nonPkColumns = columns.stream()
                 .filter(c -> !pkColumns.contains(c))
                 .collect(Collectors.toList());
 
-        String updateClause;
         if (nonPkColumns.isEmpty()) {
             // All columns are part of the primary key, so there's nothing to update.
             // We can use a special "DO NOTHING" clause.
-            return String.format("INSERT INTO %s (%s) VALUES (%s) ON CONFLICT (%s) DO NOTHING",
-                                 tableName, cols, placeholders, pkCols);
-        } else {
-            updateClause = nonPkColumns.stream()
+            return String.format("INSERT INTO %s (%s) %s ON CONFLICT (%s) DO NOTHING",
+                                 tableName, cols, source, pkCols);
+        }
+        String updateClause = nonPkColumns.stream()
                 .map(col -> String.format("%s = EXCLUDED.%s", col, col))
                 .collect(Collectors.joining(", "));
-             return String.format("INSERT INTO %s (%s) VALUES (%s) ON CONFLICT (%s) DO UPDATE SET %s",
-                                 tableName, cols, placeholders, pkCols, updateClause);
+        return String.format("INSERT INTO %s (%s) %s ON CONFLICT (%s) DO UPDATE SET %s",
+                             tableName, cols, source, pkCols, updateClause);
+    }
+
+    @Override
+    public BulkLoader getBulkLoader() {
+        return bulkLoader;
+    }
+
+    @Override
+    public boolean supportsArrayBinding() {
+        return true;
+    }
+
+    @Override
+    public String buildArrayUpsertSql(String tableName, List<String> columns, List<String> columnTypes,
+                                      List<String> pkColumns) {
+        return buildUpsertSql(tableName, columns, pkColumns, "SELECT * FROM " + unnest(columnTypes));
+    }
+
+    @Override
+    public String buildArrayDeleteSql(String tableName, List<String> pkColumns, List<String> pkTypes) {
+        if (pkColumns.size() == 1) {
+            return String.format("DELETE FROM %s WHERE %s = ANY(?::%s[])",
+                    tableName, pkColumns.get(0), arrayElementType(pkTypes.get(0)));
         }
+        return String.format("DELETE FROM %s WHERE (%s) IN (SELECT * FROM %s)",
+                tableName, String.join(", ", pkColumns), unnest(pkTypes));
+    }
+
+    @Override
+    public Array createArray(Connection connection, Object[] values) throws SQLException {
+        // Elements are sent as text and cast to the column type in SQL (see unnest)
+        String[] text = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            text[i] = bulkLoader.formatValue(values[i]);
+        }
+        return connection.createArrayOf("text", text);
+    }
+
+    /**
+     * unnest(?::type1[], ?::type2[], ...) over text array parameters.
+     */
+    private String unnest(List<String> types) {
+        return types.stream()
+                .map(type -> "?::" + arrayElementType(type) + "[]")
+                .collect(Collectors.joining(", ", "unnest(", ")"));
+    }
+
+    /**
+     * Castable type for a DatabaseMetaData TYPE_NAME; the driver reports serial
+     * columns by their pseudo-type, which cannot be cast to.
+     */
+    private String arrayElementType(String typeName) {
+        switch (typeName.toLowerCase()) {
+            case "serial":
+                return "int4";
+            case "bigserial":
+                return "int8";
+            case "smallserial":
+                return "int2";
+            default:
+                return typeName;
+        }
+    }
+
+    @Override
+    protected String compositeKeyMatch(List<String> pkColumns, int rows) {
+        return "(" + String.join(", ", pkColumns) + ") IN (" + valueRows(pkColumns.size(), rows) + ")";
+    }
+
+    @Override
+    public int getMaxDeleteKeys() {
+        return 1000;
+    }
+
+    @Override
+    public boolean supportsMultiRowValues() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        // The wire protocol counts bind parameters in a signed 16-bit field
+        return 32767;
     }
 
     @Override
@@ -96,4 +194,26 @@ public class PostgreSqlDialect extends GenericDialect {
         // PostgreSQL stores unquoted identifiers in lowercase
         return identifier != null ? identifier.toLowerCase() : null;
     }
+
+    @Override
+    protected SqlErrorCategory classifyVendorError(SQLException e) {
+        String sqlState = e.getSQLState();
+        if (sqlState == null) {
+            return null;
+        }
+        switch (sqlState) {
+            case "40001": // serialization_failure
+            case "40P01": // deadlock_detected
+            case "55P03": // lock_not_available
+            case "57014": // query_canceled (statement_timeout)
+                return SqlErrorCategory.TRANSIENT;
+            case "53300": // too_many_connections
+            case "57P01": // admin_shutdown
+            case "57P02": // crash_shutdown
+            case "57P03": // cannot_connect_now
+                return SqlErrorCategory.CONNECTION;
+            default:
+                return null;
+        }
+    }
 }
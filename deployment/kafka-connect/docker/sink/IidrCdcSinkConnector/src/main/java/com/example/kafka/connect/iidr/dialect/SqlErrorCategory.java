@@ -0,0 +1,19 @@
+package com.example.kafka.connect.iidr.dialect;
+
+/**
+ * Classification of a database error, used to decide how a failed write is handled.
+ */
+public enum SqlErrorCategory {
+    /** Deadlock, serialization failure, lock or statement timeout: retry the same batch. */
+    TRANSIENT,
+    /** Connection lost or refused: reconnect and retry. */
+    CONNECTION,
+    /** Constraint violation or invalid value in a row: retrying will not help. */
+    DATA,
+    /** Syntax, permission, missing object or anything unrecognized. */
+    FATAL;
+
+    public boolean isRetriable() {
+        return this == TRANSIENT || this == CONNECTION;
+    }
+}
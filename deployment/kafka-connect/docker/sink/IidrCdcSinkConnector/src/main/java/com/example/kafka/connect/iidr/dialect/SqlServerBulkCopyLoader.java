@@ -0,0 +1,274 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkData;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * SQL Server bulk loader: bulk copies rows with SQLServerBulkCopy from an
+ * in-memory source into a #temp staging table, then applies them with one
+ * MERGE, or one DELETE joined against the staging table for deletes.
+ *
+ * The bulk copy runs on the writer's connection, inside its transaction.
+ */
+public class SqlServerBulkCopyLoader extends StagingBulkLoader {
+
+    private static final Logger log = Logger.getLogger(SqlServerBulkCopyLoader.class.getName());
+
+    private final SqlServerDialect dialect;
+
+    public SqlServerBulkCopyLoader(SqlServerDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void upsert(Connection connection, String tableName, List<String> columns, List<String> pkColumns,
+                       List<Object[]> rows) throws SQLException {
+        String stage = "#" + stagingTableName(tableName, columns);
+
+        createStagingTable(connection, stage, tableName, columns);
+        bulkCopy(connection, stage, columns, rows);
+        execute(connection, dialect.buildMergeSql(tableName, columns, pkColumns, stage + " AS s"));
+        execute(connection, "TRUNCATE TABLE " + stage);
+    }
+
+    @Override
+    public void delete(Connection connection, String tableName, List<String> pkColumns,
+                       List<Object[]> keys) throws SQLException {
+        String stage = "#" + stagingTableName(tableName, pkColumns);
+
+        StringBuilder join = new StringBuilder();
+        for (String col : pkColumns) {
+            if (join.length() > 0) {
+                join.append(" AND ");
+            }
+            join.append("t.").append(col).append(" = s.").append(col);
+        }
+
+        createStagingTable(connection, stage, tableName, pkColumns);
+        bulkCopy(connection, stage, pkColumns, keys);
+        execute(connection, "DELETE t FROM " + tableName + " AS t INNER JOIN " + stage + " AS s ON " + join);
+        execute(connection, "TRUNCATE TABLE " + stage);
+    }
+
+    private void createStagingTable(Connection connection, String stage, String tableName, List<String> columns)
+            throws SQLException {
+        execute(connection, "IF OBJECT_ID('tempdb.." + stage + "') IS NULL SELECT TOP 0 "
+                + String.join(", ", columns) + " INTO " + stage + " FROM " + tableName);
+    }
+
+    private void bulkCopy(Connection connection, String stage, List<String> columns, List<Object[]> rows)
+            throws SQLException {
+        log.fine("Bulk copying " + rows.size() + " rows into " + stage);
+
+        SQLServerBulkCopyOptions options = new SQLServerBulkCopyOptions();
+        // SELECT INTO copies IDENTITY columns; keep the source values and NULLs as-is
+        options.setKeepIdentity(true);
+        options.setKeepNulls(true);
+        options.setBatchSize(0);
+
+        try (SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection)) {
+            bulkCopy.setBulkCopyOptions(options);
+            bulkCopy.setDestinationTableName(stage);
+            for (int i = 0; i < columns.size(); i++) {
+                bulkCopy.addColumnMapping(i + 1, columns.get(i));
+            }
+            bulkCopy.writeToServer(new RowBulkData(columns, rows));
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * In-memory bulk copy source over value arrays. Column types are inferred
+     * from the Java values; the driver converts them to the staging column types.
+     */
+    static class RowBulkData implements ISQLServerBulkData {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> columns;
+        private final transient List<Object[]> rows;
+        private final int[] types;
+        private final int[] precisions;
+        private final int[] scales;
+        private final boolean[] seen;
+        private final boolean[] mixed;
+        private int position = -1;
+
+        RowBulkData(List<String> columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+            this.types = new int[columns.size()];
+            this.precisions = new int[columns.size()];
+            this.scales = new int[columns.size()];
+            this.seen = new boolean[columns.size()];
+            this.mixed = new boolean[columns.size()];
+
+            for (int i = 0; i < columns.size(); i++) {
+                types[i] = Types.NVARCHAR;
+            }
+            // Values are normalized in place; the arrays belong to this load
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = normalize(row[i]);
+                    describe(i, row[i]);
+                }
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (mixed[i]) {
+                    describeAsText(i);
+                }
+            }
+        }
+
+        private static Object normalize(Object value) {
+            if (value instanceof java.util.Date
+                    && !(value instanceof java.sql.Timestamp)
+                    && !(value instanceof java.sql.Date)
+                    && !(value instanceof java.sql.Time)) {
+                return new java.sql.Timestamp(((java.util.Date) value).getTime());
+            }
+            if (value instanceof ByteBuffer) {
+                ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return bytes;
+            }
+            return value;
+        }
+
+        private void describe(int column, Object value) {
+            if (value == null || mixed[column]) {
+                return;
+            }
+            int type = typeOf(value);
+            if (type == Types.NVARCHAR && !(value instanceof String)
+                    || seen[column] && type != types[column]) {
+                // Sent as text; the length is measured once all rows are seen
+                mixed[column] = true;
+                return;
+            }
+            seen[column] = true;
+            types[column] = type;
+            if (value instanceof String) {
+                precisions[column] = Math.max(precisions[column], ((String) value).length());
+            } else if (value instanceof byte[]) {
+                precisions[column] = Math.max(precisions[column], ((byte[]) value).length);
+            } else if (value instanceof BigDecimal) {
+                precisions[column] = 38;
+                scales[column] = Math.max(scales[column], Math.max(0, ((BigDecimal) value).scale()));
+            } else if (value instanceof java.sql.Timestamp) {
+                precisions[column] = 27;
+                scales[column] = 7;
+            }
+        }
+
+        private static int typeOf(Object value) {
+            if (value instanceof byte[]) {
+                return Types.VARBINARY;
+            } else if (value instanceof BigDecimal) {
+                return Types.DECIMAL;
+            } else if (value instanceof Long) {
+                return Types.BIGINT;
+            } else if (value instanceof Integer) {
+                return Types.INTEGER;
+            } else if (value instanceof Short) {
+                return Types.SMALLINT;
+            } else if (value instanceof Byte) {
+                return Types.TINYINT;
+            } else if (value instanceof Double) {
+                return Types.DOUBLE;
+            } else if (value instanceof Float) {
+                return Types.REAL;
+            } else if (value instanceof Boolean) {
+                return Types.BIT;
+            } else if (value instanceof java.sql.Timestamp) {
+                return Types.TIMESTAMP;
+            } else if (value instanceof java.sql.Date) {
+                return Types.DATE;
+            } else if (value instanceof java.sql.Time) {
+                return Types.TIME;
+            }
+            return Types.NVARCHAR;
+        }
+
+        private void describeAsText(int column) {
+            types[column] = Types.NVARCHAR;
+            precisions[column] = 0;
+            scales[column] = 0;
+            for (Object[] row : rows) {
+                if (row[column] != null) {
+                    precisions[column] = Math.max(precisions[column], row[column].toString().length());
+                }
+            }
+        }
+
+        @Override
+        public Set<Integer> getColumnOrdinals() {
+            Set<Integer> ordinals = new LinkedHashSet<>();
+            for (int i = 1; i <= columns.size(); i++) {
+                ordinals.add(i);
+            }
+            return ordinals;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns.get(column - 1);
+        }
+
+        @Override
+        public int getColumnType(int column) {
+            return types[column - 1];
+        }
+
+        @Override
+        public int getPrecision(int column) {
+            int type = types[column - 1];
+            if (type == Types.NVARCHAR || type == Types.VARBINARY) {
+                return Math.max(1, precisions[column - 1]);
+            }
+            return precisions[column - 1];
+        }
+
+        @Override
+        public int getScale(int column) {
+            return scales[column - 1];
+        }
+
+        @Override
+        public Object[] getRowData() {
+            Object[] row = rows.get(position);
+            Object[] data = new Object[row.length];
+            for (int i = 0; i < row.length; i++) {
+                Object value = row[i];
+                // Columns holding text or mixed value types are sent as text
+                data[i] = types[i] == Types.NVARCHAR && value != null && !(value instanceof String)
+                        ? value.toString() : value;
+            }
+            return data;
+        }
+
+        @Override
+        public boolean next() {
+            position++;
+            return position < rows.size();
+        }
+    }
+}
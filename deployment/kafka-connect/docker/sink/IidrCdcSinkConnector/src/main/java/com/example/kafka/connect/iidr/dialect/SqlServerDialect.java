@@ -0,0 +1,209 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dialect for Microsoft SQL Server.
+ *
+ * Upserts are MERGE statements over a VALUES source, so write.mode=multi_row
+ * can merge many rows per statement. Large runs can be bulk copied into a
+ * #temp staging table (see {@link SqlServerBulkCopyLoader}).
+ */
+public class SqlServerDialect extends GenericDialect {
+
+    private final BulkLoader bulkLoader = new SqlServerBulkCopyLoader(this);
+
+    @Override
+    public String getName() {
+        return "SQL Server";
+    }
+
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns) {
+        return buildUpsertSql(tableName, columns, pkColumns, 1);
+    }
+
+    @Override
+    public String buildUpsertSql(String tableName, List<String> columns, List<String> pkColumns, int rows) {
+        if (pkColumns.isEmpty()) {
+            // Nothing to match on
+            return buildInsertSql(tableName, columns, rows);
+        }
+        String source = "(VALUES " + valueRows(columns.size(), rows) + ") AS s (" + String.join(", ", columns) + ")";
+        return buildMergeSql(tableName, columns, pkColumns, source);
+    }
+
+    /**
+     * Build a MERGE upsert whose rows come from the given aliased source, e.g. a
+     * VALUES list or a staging table.
+     */
+    public String buildMergeSql(String tableName, List<String> columns, List<String> pkColumns, String source) {
+        StringBuilder on = new StringBuilder();
+        for (int i = 0; i < pkColumns.size(); i++) {
+            if (i > 0) {
+                on.append(" AND ");
+            }
+            on.append("t.").append(pkColumns.get(i)).append(" = s.").append(pkColumns.get(i));
+        }
+
+        List<String> nonPkColumns = new ArrayList<>(columns);
+        nonPkColumns.removeAll(pkColumns);
+
+        // HOLDLOCK: without it, concurrent MERGEs of a new key can both take the insert branch
+        StringBuilder sql = new StringBuilder();
+        sql.append("MERGE INTO ").append(tableName).append(" WITH (HOLDLOCK) AS t USING ").append(source)
+           .append(" ON (").append(on).append(")");
+        if (!nonPkColumns.isEmpty()) {
+            sql.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i = 0; i < nonPkColumns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("t.").append(nonPkColumns.get(i)).append(" = s.").append(nonPkColumns.get(i));
+            }
+        }
+        sql.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("s.").append(columns.get(i));
+        }
+        // MERGE must be terminated by a semicolon
+        sql.append(");");
+        return sql.toString();
+    }
+
+    @Override
+    public BulkLoader getBulkLoader() {
+        return bulkLoader;
+    }
+
+    @Override
+    public boolean supportsMultiRowValues() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        // Hard limit is 2100 per request; leave headroom for parameters the driver adds itself
+        return 2000;
+    }
+
+    @Override
+    public int getMaxDeleteKeys() {
+        return 1000;
+    }
+
+    @Override
+    public String buildAlterTableSql(String tableName, List<String> missingColumns, ProcessedRecord sample) {
+        StringBuilder ddl = new StringBuilder();
+        ddl.append("ALTER TABLE ").append(tableName).append(" ADD ");
+        for (int i = 0; i < missingColumns.size(); i++) {
+            if (i > 0) {
+                ddl.append(", ");
+            }
+            String column = missingColumns.get(i);
+            Schema fieldSchema = sample.getValueSchema() != null ? sample.getValueSchema().field(column).schema() : null;
+            ddl.append(column).append(" ").append(getColumnType(fieldSchema));
+        }
+        return ddl.toString();
+    }
+
+    @Override
+    public String getColumnType(Schema schema) {
+        if (schema == null) {
+            return "NVARCHAR(1024)";
+        }
+        if (schema.name() != null) {
+            switch (schema.name()) {
+                case Timestamp.LOGICAL_NAME:
+                    return "DATETIME2";
+                case Date.LOGICAL_NAME:
+                    return "DATE";
+                case Time.LOGICAL_NAME:
+                    return "TIME";
+                case Decimal.LOGICAL_NAME:
+                    return "DECIMAL(38, " + schema.parameters().get(Decimal.SCALE_FIELD) + ")";
+                default:
+                    break;
+            }
+        }
+        switch (schema.type()) {
+            case INT8:
+                // TINYINT is unsigned in SQL Server
+                return "SMALLINT";
+            case INT16:
+                return "SMALLINT";
+            case INT32:
+                return "INT";
+            case INT64:
+                return "BIGINT";
+            case FLOAT32:
+                return "REAL";
+            case FLOAT64:
+                return "FLOAT";
+            case BOOLEAN:
+                return "BIT";
+            case STRING:
+                return "NVARCHAR(255)";
+            case BYTES:
+                return "VARBINARY(MAX)";
+            default:
+                return "NVARCHAR(MAX)";
+        }
+    }
+
+    @Override
+    protected String inferColumnType(Object value) {
+        if (value instanceof Integer || value instanceof Long) {
+            return "BIGINT";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return "FLOAT";
+        }
+        if (value instanceof Boolean) {
+            return "BIT";
+        }
+        if (value instanceof String && ((String) value).length() > 255) {
+            return "NVARCHAR(MAX)";
+        }
+        return "NVARCHAR(1024)";
+    }
+
+    @Override
+    protected SqlErrorCategory classifyVendorError(SQLException e) {
+        switch (e.getErrorCode()) {
+            case 1205: // deadlock victim
+            case 1222: // lock request time out
+            case 3960: // snapshot isolation update conflict
+                return SqlErrorCategory.TRANSIENT;
+            case 233:   // no process on the other end of the pipe
+            case 10054: // connection forcibly closed
+            case 40613: // Azure SQL database not currently available
+                return SqlErrorCategory.CONNECTION;
+            case 220:  // arithmetic overflow for data type
+            case 245:  // conversion failed
+            case 515:  // cannot insert NULL
+            case 547:  // FOREIGN KEY / CHECK constraint conflict
+            case 2601: // duplicate key row in unique index
+            case 2627: // PRIMARY KEY / UNIQUE constraint violation
+            case 2628: // string or binary data would be truncated (2019+)
+            case 8114: // error converting data type
+            case 8115: // arithmetic overflow converting
+            case 8152: // string or binary data would be truncated
+                return SqlErrorCategory.DATA;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.kafka.connect.iidr.dialect;
+
+import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Base for bulk loaders that stream rows as text into a session-scoped staging
+ * table and then merge the staging table into the target with set-based SQL.
+ *
+ * A staging table holds exactly the columns of one column signature, so it is
+ * named after a hash of the target table and those columns.
+ */
+public abstract class StagingBulkLoader implements BulkLoader {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * Name of the staging table for a target table and column list.
+     */
+    protected String stagingTableName(String tableName, List<String> columns) {
+        // 64-bit FNV-1a, so distinct column sets practically never share a staging table
+        long hash = 0xcbf29ce484222325L;
+        String signature = tableName + "|" + String.join(",", columns);
+        for (int i = 0; i < signature.length(); i++) {
+            hash ^= signature.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return "iidr_stage_" + Long.toUnsignedString(hash, 36);
+    }
+
+    /**
+     * Text form of a value for the load format, or null for SQL NULL.
+     */
+    protected String formatValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return formatBytes((byte[]) value);
+        }
+        if (value instanceof java.nio.ByteBuffer) {
+            java.nio.ByteBuffer buffer = ((java.nio.ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return formatBytes(bytes);
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Date && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time)) {
+            // Connect Timestamp/Date logical values are java.util.Date
+            return formatTimestamp(((Date) value).toInstant().atZone(ZoneId.systemDefault()));
+        }
+        return value.toString();
+    }
+
+    /**
+     * Text form of a Connect Timestamp, in the JVM time zone: the statement
+     * path binds the same java.util.Date and the driver renders it in that zone,
+     * so a row is stored alike whether or not its run crossed bulk.threshold.
+     */
+    protected String formatTimestamp(ZonedDateTime timestamp) {
+        return TIMESTAMP_FORMAT.format(timestamp);
+    }
+
+    /**
+     * Text form of a binary value; hex by default.
+     */
+    protected String formatBytes(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.kafka.connect.iidr.operation;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +37,20 @@ public class EntryTypeMapper {
         ENTRY_TYPE_MAP.put("DR", CdcOperation.DELETE);
     }
 
+    // ENTRY_TYPE_MAP as an array indexed by code, so mapping a header needs no String
+    private static final CdcOperation[] OPERATIONS_BY_CODE = new CdcOperation[26 * 26];
+
+    static {
+        for (Map.Entry<String, CdcOperation> entry : ENTRY_TYPE_MAP.entrySet()) {
+            String code = entry.getKey();
+            int index = code.length() == 2 ? index(code.charAt(0), code.charAt(1)) : -1;
+            if (index < 0) {
+                throw new IllegalStateException("A_ENTTYP code must be two upper-case letters: " + code);
+            }
+            OPERATIONS_BY_CODE[index] = entry.getValue();
+        }
+    }
+
     /**
      * Map an A_ENTTYP code to a CDC operation.
      *
@@ -43,10 +58,65 @@ public class EntryTypeMapper {
      * @return The corresponding CdcOperation, or null if unrecognized
      */
     public static CdcOperation mapEntryType(String entryType) {
-        if (entryType == null || entryType.trim().isEmpty()) {
+        if (entryType == null) {
+            return null;
+        }
+        int start = 0;
+        int end = entryType.length();
+        while (start < end && entryType.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && entryType.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start != 2) {
+            return null;
+        }
+        return mapCode(entryType.charAt(start), entryType.charAt(start + 1));
+    }
+
+    /**
+     * Map an A_ENTTYP code given as raw header bytes, without decoding it.
+     * Every code is two ASCII letters, so other byte values never match.
+     */
+    public static CdcOperation mapEntryType(byte[] entryType) {
+        if (entryType == null) {
             return null;
         }
-        return ENTRY_TYPE_MAP.get(entryType.trim().toUpperCase());
+        int start = 0;
+        int end = entryType.length;
+        while (start < end && (entryType[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (entryType[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (end - start != 2) {
+            return null;
+        }
+        return mapCode((char) (entryType[start] & 0xFF), (char) (entryType[start + 1] & 0xFF));
+    }
+
+    /**
+     * Case-insensitive lookup of a two-letter code in OPERATIONS_BY_CODE.
+     */
+    private static CdcOperation mapCode(char first, char second) {
+        int index = index(upper(first), upper(second));
+        return index < 0 ? null : OPERATIONS_BY_CODE[index];
+    }
+
+    /**
+     * Slot of an upper-case two-letter code in OPERATIONS_BY_CODE, or -1.
+     */
+    private static int index(char first, char second) {
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z') {
+            return -1;
+        }
+        return (first - 'A') * 26 + (second - 'A');
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
     }
 
     /**
@@ -60,6 +130,6 @@ public class EntryTypeMapper {
      * Get all valid entry type codes.
      */
     public static Set<String> getValidEntryTypes() {
-        return ENTRY_TYPE_MAP.keySet();
+        return Collections.unmodifiableSet(ENTRY_TYPE_MAP.keySet());
     }
 }
@@ -0,0 +1,159 @@
+package com.example.kafka.connect.iidr.util;
+
+import com.example.kafka.connect.iidr.operation.CdcOperation;
+import com.example.kafka.connect.iidr.operation.EntryTypeMapper;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.header.Headers;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable view of one record's IIDR headers, filled by a single pass over
+ * the headers instead of one lookup per header.
+ *
+ * TableName values repeat across records, so they are decoded once and
+ * interned by their bytes. A_ENTTYP is mapped to an operation straight from
+ * its bytes; its text is only decoded when asked for, e.g. for error reports.
+ *
+ * Not thread-safe: each task reads into its own instance.
+ */
+public class RecordHeaders {
+
+    private static final int MAX_TABLE_NAMES = 1024;
+
+    private final TableNameInterner tableNames = new TableNameInterner();
+
+    private boolean hasTableName;
+    private boolean hasEntryType;
+    private String tableName;
+    private Object entryTypeValue;
+    private CdcOperation operation;
+    private Object timestampValue;
+
+    /**
+     * Read the IIDR headers of a record, replacing the previous record's.
+     * Like {@link Headers#lastWithName(String)}, the last header of each name wins.
+     */
+    public void read(SinkRecord record) {
+        Header tableNameHeader = null;
+        Header entryTypeHeader = null;
+        Header timestampHeader = null;
+
+        Headers headers = record.headers();
+        if (headers != null) {
+            for (Header header : headers) {
+                String key = header.key();
+                if (HeaderExtractor.HEADER_TABLE_NAME.equals(key)) {
+                    tableNameHeader = header;
+                } else if (HeaderExtractor.HEADER_ENTRY_TYPE.equals(key)) {
+                    entryTypeHeader = header;
+                } else if (HeaderExtractor.HEADER_TIMESTAMP.equals(key)) {
+                    timestampHeader = header;
+                }
+            }
+        }
+
+        Object value = tableNameHeader != null ? tableNameHeader.value() : null;
+        hasTableName = value != null;
+        tableName = hasTableName ? tableNames.intern(value) : null;
+
+        entryTypeValue = entryTypeHeader != null ? entryTypeHeader.value() : null;
+        hasEntryType = entryTypeValue != null;
+        if (entryTypeValue instanceof byte[]) {
+            operation = EntryTypeMapper.mapEntryType((byte[]) entryTypeValue);
+        } else {
+            operation = hasEntryType ? EntryTypeMapper.mapEntryType(entryTypeValue.toString()) : null;
+        }
+
+        timestampValue = timestampHeader != null ? timestampHeader.value() : null;
+    }
+
+    /**
+     * Describe missing required headers, as {@link HeaderExtractor#validateRequiredHeaders} does.
+     *
+     * @return null if valid, otherwise a description of what's missing
+     */
+    public String validateRequired() {
+        if (hasTableName && hasEntryType) {
+            return null;
+        }
+        if (!hasTableName && !hasEntryType) {
+            return "Missing header: TableName. Missing header: A_ENTTYP.";
+        }
+        return hasTableName ? "Missing header: A_ENTTYP." : "Missing header: TableName.";
+    }
+
+    /**
+     * The TableName header, or null if absent.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * The operation A_ENTTYP maps to, or null if absent or unrecognized.
+     */
+    public CdcOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * The A_ENTTYP header as text, or null if absent.
+     */
+    public String getEntryType() {
+        return decode(entryTypeValue);
+    }
+
+    /**
+     * The A_TIMSTAMP header as text, or null if absent.
+     */
+    public String getTimestamp() {
+        return decode(timestampValue);
+    }
+
+    private static String decode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Open-addressing cache of decoded table names, keyed by their UTF-8 bytes
+     * so a hit costs a hash and a byte comparison. Stops growing when full.
+     */
+    static class TableNameInterner {
+        private final byte[][] keys = new byte[MAX_TABLE_NAMES * 2][];
+        private final String[] names = new String[MAX_TABLE_NAMES * 2];
+        private int size;
+
+        String intern(Object value) {
+            if (!(value instanceof byte[])) {
+                return value.toString();
+            }
+            byte[] bytes = (byte[]) value;
+            int mask = keys.length - 1;
+            int slot = Arrays.hashCode(bytes) & mask;
+            while (keys[slot] != null) {
+                if (Arrays.equals(keys[slot], bytes)) {
+                    return names[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            if (size < MAX_TABLE_NAMES) {
+                // Copied: the header's array belongs to the record
+                keys[slot] = bytes.clone();
+                names[slot] = name;
+                size++;
+            }
+            return name;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.kafka.connect.iidr.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves the target table of a record from table.name.format, compiled once
+ * into literal and placeholder segments.
+ *
+ * When the format contains ${TableName}, every record is processed (template
+ * mode). Otherwise the format is a literal table name, possibly using
+ * ${topic}, and only records whose TableName header equals it are processed,
+ * so several connectors can share a topic.
+ *
+ * When table.routes is set, it replaces the format: each route maps one
+ * TableName to its target table, and records of other tables are skipped.
+ * One connector then serves every routed table from a single pass over the topic.
+ *
+ * Routes are cached per topic and TableName, so routing a record is one hash
+ * lookup for the usual run of records from the same topic. Not thread-safe:
+ * each task owns its resolver.
+ */
+public class TableNameResolver {
+
+    static final String TABLE_NAME_PLACEHOLDER = "${TableName}";
+    static final String TOPIC_PLACEHOLDER = "${topic}";
+
+    private static final int MAX_CACHED_ROUTES = 4096;
+
+    private static final Route SKIP = new Route(null, false);
+
+    // Segments: literal text, null for ${TableName}, or TOPIC_PLACEHOLDER (by identity) for ${topic}
+    private final List<String> segments = new ArrayList<>();
+    private final boolean templateMode;
+    private final Map<String, String> routeTargets = new HashMap<>();
+
+    private final Map<String, Map<String, Route>> routesByTopic = new HashMap<>();
+    private int cachedRoutes;
+    private String lastTopic;
+    private Map<String, Route> lastTopicRoutes;
+
+    public TableNameResolver(String format) {
+        this(format, Collections.emptyList());
+    }
+
+    public TableNameResolver(String format, List<TableRoute> routes) {
+        this.templateMode = routes.isEmpty() && format.contains(TABLE_NAME_PLACEHOLDER);
+        compile(format);
+        for (TableRoute route : routes) {
+            routeTargets.put(route.getSource(), route.getTarget());
+        }
+    }
+
+    private void compile(String format) {
+        int pos = 0;
+        while (pos < format.length()) {
+            int table = format.indexOf(TABLE_NAME_PLACEHOLDER, pos);
+            int topic = format.indexOf(TOPIC_PLACEHOLDER, pos);
+            int next = table < 0 ? topic : topic < 0 ? table : Math.min(table, topic);
+            if (next < 0) {
+                segments.add(format.substring(pos));
+                break;
+            }
+            if (next > pos) {
+                segments.add(format.substring(pos, next));
+            }
+            if (next == table) {
+                segments.add(null);
+                pos = next + TABLE_NAME_PLACEHOLDER.length();
+            } else {
+                segments.add(TOPIC_PLACEHOLDER);
+                pos = next + TOPIC_PLACEHOLDER.length();
+            }
+        }
+    }
+
+    /**
+     * Route a record by its topic and TableName header.
+     *
+     * @param tableName the TableName header, or null if absent
+     */
+    public Route route(String topic, String tableName) {
+        if (tableName == null) {
+            // Left to header validation in template mode
+            return templateMode ? new Route(resolve("", topic), true) : SKIP;
+        }
+
+        Map<String, Route> routes;
+        if (lastTopicRoutes != null && Objects.equals(topic, lastTopic)) {
+            routes = lastTopicRoutes;
+        } else {
+            routes = routesByTopic.computeIfAbsent(topic, t -> new HashMap<>());
+            lastTopic = topic;
+            lastTopicRoutes = routes;
+        }
+
+        Route route = routes.get(tableName);
+        if (route == null) {
+            route = compute(topic, tableName);
+            if (cachedRoutes >= MAX_CACHED_ROUTES) {
+                routesByTopic.clear();
+                routes = new HashMap<>();
+                routesByTopic.put(topic, routes);
+                lastTopicRoutes = routes;
+                cachedRoutes = 0;
+            }
+            routes.put(tableName, route);
+            cachedRoutes++;
+        }
+        return route;
+    }
+
+    private Route compute(String topic, String tableName) {
+        if (!routeTargets.isEmpty()) {
+            String routed = routeTargets.get(tableName);
+            return routed != null ? new Route(routed, true) : SKIP;
+        }
+        String target = resolve(tableName, topic);
+        if (templateMode || target.equals(tableName)) {
+            return new Route(target, true);
+        }
+        return SKIP;
+    }
+
+    private String resolve(String tableName, String topic) {
+        StringBuilder sb = new StringBuilder();
+        for (String segment : segments) {
+            if (segment == null) {
+                sb.append(tableName);
+            } else if (segment == TOPIC_PLACEHOLDER) {
+                sb.append(topic != null ? topic : "");
+            } else {
+                sb.append(segment);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Where a record goes: its target table, or skipped by this connector.
+     */
+    public static class Route {
+        private final String targetTable;
+        private final boolean processed;
+
+        Route(String targetTable, boolean processed) {
+            this.targetTable = targetTable;
+            this.processed = processed;
+        }
+
+        public String getTargetTable() {
+            return targetTable;
+        }
+
+        public boolean isProcessed() {
+            return processed;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.kafka.connect.iidr.util;
+
+import java.util.List;
+
+/**
+ * One entry of table.routes: records whose TableName header is the source go
+ * to the target table, keyed by the route's primary key fields.
+ */
+public class TableRoute {
+
+    private final String alias;
+    private final String source;
+    private final String target;
+    private final List<String> pkFields;
+
+    public TableRoute(String alias, String source, String target, List<String> pkFields) {
+        this.alias = alias;
+        this.source = source;
+        this.target = target;
+        this.pkFields = pkFields;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    /**
+     * The TableName header value this route matches.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Primary key fields of the target table, or null to use pk.fields.
+     */
+    public List<String> getPkFields() {
+        return pkFields;
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.kafka.connect.iidr.util;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.logging.Logger;
 
 /**
@@ -15,22 +17,53 @@ import java.util.logging.Logger;
  * a configured timezone and converts to standard OffsetDateTime.
  *
  * Example:
- * - Input: "2025-01-22 11:17:14.000000000000"
+ * - Input: "2025-01-22 11:17:14.123000000000"
  * - Timezone: "Asia/Taipei" (+08:00)
- * - Output: 2025-01-22T11:17:14.000000+08:00
+ * - Output: 2025-01-22T11:17:14.123+08:00
+ *
+ * The layout is fixed, so it is parsed by hand rather than with a
+ * DateTimeFormatter. The zone offset is cached per local hour and the parsed
+ * date and time per second, so consecutive timestamps only parse their
+ * fraction. {@link #parse(String)} exposes the result as primitives.
+ *
+ * Not thread-safe: each task uses its own instance.
  */
 public class TimestampConverter {
 
     private static final Logger log = Logger.getLogger(TimestampConverter.class.getName());
 
-    // Format: yyyy-MM-dd HH:mm:ss.SSSSSSSSS (9 decimal places - nanoseconds)
-    private static final DateTimeFormatter INPUT_FORMATTER =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSSSS");
+    // "yyyy-MM-dd HH:mm:ss"
+    private static final int SECOND_LENGTH = 19;
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final long DAYS_0000_TO_1970 = 719528L;
 
     private final ZoneId sourceZone;
+    private final ZoneRules rules;
+    private final ZoneOffset fixedOffset;
+
+    // Last parsed second: its text, local fields and offset
+    private final char[] lastSecond = new char[SECOND_LENGTH];
+    private boolean hasLastSecond;
+    private int year;
+    private int month;
+    private int day;
+    private int hour;
+    private int minute;
+    private int second;
+    private long localEpochSecond;
+    private ZoneOffset offset;
+    private int nano;
+
+    // Offset of the last local hour without a transition, or Long.MIN_VALUE
+    private long cachedHour = Long.MIN_VALUE;
+    private ZoneOffset cachedHourOffset;
+
+    private final char[] isoBuffer = new char[48];
 
     public TimestampConverter(String timezone) {
         this.sourceZone = parseTimezone(timezone);
+        this.rules = sourceZone.getRules();
+        this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
         log.info("TimestampConverter initialized with timezone: " + timezone + " (" + sourceZone + ")");
     }
 
@@ -68,54 +101,297 @@ public class TimestampConverter {
      * @return OffsetDateTime with the configured timezone, or null if parsing fails
      */
     public OffsetDateTime convert(String timestamp) {
-        if (timestamp == null || timestamp.trim().isEmpty()) {
+        if (!parse(timestamp)) {
             return null;
         }
+        return OffsetDateTime.of(year, month, day, hour, minute, second, nano, offset);
+    }
 
-        try {
-            // Truncate to 9 decimal places (nanoseconds) if longer
-            String truncated = truncateNanos(timestamp.trim());
+    /**
+     * Convert and format to ISO8601 string, as {@link OffsetDateTime#toString()} would.
+     */
+    public String convertToIso8601(String timestamp) {
+        if (!parse(timestamp)) {
+            return null;
+        }
+        return formatIso8601();
+    }
 
-            // Parse as LocalDateTime (no timezone info in input)
-            LocalDateTime localDateTime = LocalDateTime.parse(truncated, INPUT_FORMATTER);
+    /**
+     * Parse an A_TIMSTAMP into this converter's state, read back with
+     * {@link #getEpochSecond()}, {@link #getNano()} and {@link #getOffsetSeconds()}.
+     * Fraction digits beyond nanoseconds are truncated.
+     *
+     * @return false if the value is empty or malformed
+     */
+    public boolean parse(String timestamp) {
+        if (timestamp == null) {
+            return false;
+        }
+        int start = 0;
+        int end = timestamp.length();
+        while (start < end && timestamp.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && timestamp.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
 
-            // Apply configured timezone
-            return localDateTime.atZone(sourceZone).toOffsetDateTime();
+        int fraction = parseFraction(timestamp, start + SECOND_LENGTH, end);
+        if (fraction < 0 || !parseSecond(timestamp, start)) {
+            log.warning("Failed to parse A_TIMSTAMP '" + timestamp + "'");
+            return false;
+        }
+        this.nano = fraction;
+        return true;
+    }
 
-        } catch (DateTimeParseException e) {
-            log.warning("Failed to parse A_TIMSTAMP '" + timestamp + "': " + e.getMessage());
-            return null;
+    /**
+     * Seconds since the epoch of the last parsed timestamp.
+     */
+    public long getEpochSecond() {
+        return localEpochSecond - offset.getTotalSeconds();
+    }
+
+    /**
+     * Nanosecond of second of the last parsed timestamp.
+     */
+    public int getNano() {
+        return nano;
+    }
+
+    /**
+     * Offset from UTC of the last parsed timestamp, in seconds.
+     */
+    public int getOffsetSeconds() {
+        return offset.getTotalSeconds();
+    }
+
+    /**
+     * Nanoseconds since the epoch of the last parsed timestamp.
+     */
+    public long getEpochNanos() {
+        return getEpochSecond() * 1_000_000_000L + nano;
+    }
+
+    /**
+     * Parse ".f{0,}" after the seconds into nanoseconds.
+     *
+     * @return the nanoseconds, or -1 if malformed
+     */
+    private static int parseFraction(String s, int from, int end) {
+        if (from == end) {
+            return 0;
+        }
+        if (from > end || s.charAt(from) != '.') {
+            return -1;
         }
+        int nanos = 0;
+        int digits = 0;
+        for (int i = from + 1; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            if (digits < 9) {
+                nanos = nanos * 10 + digit;
+                digits++;
+            }
+        }
+        for (; digits < 9; digits++) {
+            nanos *= 10;
+        }
+        return nanos;
     }
 
     /**
-     * Truncate nanosecond precision from 12 digits to 9 digits.
+     * Parse "yyyy-MM-dd HH:mm:ss" at the given position, reusing the previous
+     * result when the text is the same.
      */
-    private String truncateNanos(String timestamp) {
-        int dotIndex = timestamp.lastIndexOf('.');
-        if (dotIndex == -1) {
-            return timestamp + ".000000000";
-        }
-
-        String fraction = timestamp.substring(dotIndex + 1);
-        if (fraction.length() > 9) {
-            return timestamp.substring(0, dotIndex + 1) + fraction.substring(0, 9);
-        } else if (fraction.length() < 9) {
-            // Pad with zeros
-            StringBuilder padded = new StringBuilder(timestamp);
-            for (int i = fraction.length(); i < 9; i++) {
-                padded.append('0');
+    private boolean parseSecond(String s, int from) {
+        if (hasLastSecond && sameSecond(s, from)) {
+            return true;
+        }
+        hasLastSecond = false;
+
+        if (s.charAt(from + 4) != '-' || s.charAt(from + 7) != '-' || s.charAt(from + 10) != ' '
+                || s.charAt(from + 13) != ':' || s.charAt(from + 16) != ':') {
+            return false;
+        }
+        int y = digits(s, from, 4);
+        int mo = digits(s, from + 5, 2);
+        int d = digits(s, from + 8, 2);
+        int h = digits(s, from + 11, 2);
+        int mi = digits(s, from + 14, 2);
+        int sec = digits(s, from + 17, 2);
+        if (y < 0 || mo < 1 || mo > 12 || d < 1 || d > 31 || h < 0 || h > 23
+                || mi < 0 || mi > 59 || sec < 0 || sec > 59) {
+            return false;
+        }
+        // Like the SMART resolver: a day past the end of the month is clamped to it
+        d = Math.min(d, lengthOfMonth(y, mo));
+
+        long local = epochDay(y, mo, d) * 86400L + h * 3600 + mi * 60 + sec;
+        ZoneOffset resolved = offsetOf(local);
+        if (resolved == null) {
+            // In a gap or overlap: resolve as LocalDateTime.atZone does
+            ZonedDateTime zoned = LocalDateTime.of(y, mo, d, h, mi, sec).atZone(sourceZone);
+            LocalDateTime adjusted = zoned.toLocalDateTime();
+            resolved = zoned.getOffset();
+            y = adjusted.getYear();
+            mo = adjusted.getMonthValue();
+            d = adjusted.getDayOfMonth();
+            h = adjusted.getHour();
+            mi = adjusted.getMinute();
+            sec = adjusted.getSecond();
+            local = adjusted.toEpochSecond(ZoneOffset.UTC);
+        }
+
+        year = y;
+        month = mo;
+        day = d;
+        hour = h;
+        minute = mi;
+        second = sec;
+        localEpochSecond = local;
+        offset = resolved;
+        s.getChars(from, from + SECOND_LENGTH, lastSecond, 0);
+        hasLastSecond = true;
+        return true;
+    }
+
+    private boolean sameSecond(String s, int from) {
+        for (int i = SECOND_LENGTH - 1; i >= 0; i--) {
+            if (s.charAt(from + i) != lastSecond[i]) {
+                return false;
             }
-            return padded.toString();
         }
-        return timestamp;
+        return true;
     }
 
     /**
-     * Convert and format to ISO8601 string.
+     * Offset for a local time, from the per-hour cache where the hour has no
+     * transition.
+     *
+     * @return the offset, or null if the local time is in a gap or overlap
      */
-    public String convertToIso8601(String timestamp) {
-        OffsetDateTime odt = convert(timestamp);
-        return odt != null ? odt.toString() : null;
+    private ZoneOffset offsetOf(long localSecond) {
+        if (fixedOffset != null) {
+            return fixedOffset;
+        }
+        long localHour = Math.floorDiv(localSecond, SECONDS_PER_HOUR);
+        if (localHour == cachedHour) {
+            return cachedHourOffset;
+        }
+
+        long hourStart = localHour * SECONDS_PER_HOUR;
+        LocalDateTime start = LocalDateTime.ofEpochSecond(hourStart, 0, ZoneOffset.UTC);
+        if (rules.getTransition(start) == null) {
+            ZoneOffset hourOffset = rules.getOffset(start);
+            ZoneOffsetTransition next = rules.nextTransition(
+                    Instant.ofEpochSecond(hourStart - hourOffset.getTotalSeconds()));
+            // Earliest local time the next transition affects
+            long affected = next == null ? Long.MAX_VALUE : next.toEpochSecond()
+                    + Math.min(next.getOffsetBefore().getTotalSeconds(), next.getOffsetAfter().getTotalSeconds());
+            if (affected >= hourStart + SECONDS_PER_HOUR) {
+                cachedHour = localHour;
+                cachedHourOffset = hourOffset;
+                return hourOffset;
+            }
+        }
+
+        // A transition falls within this hour
+        LocalDateTime local = LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+        return rules.getTransition(local) == null ? rules.getOffset(local) : null;
+    }
+
+    private String formatIso8601() {
+        char[] buf = isoBuffer;
+        int pos = 0;
+        pos = pad(buf, pos, year, 4);
+        buf[pos++] = '-';
+        pos = pad(buf, pos, month, 2);
+        buf[pos++] = '-';
+        pos = pad(buf, pos, day, 2);
+        buf[pos++] = 'T';
+        pos = pad(buf, pos, hour, 2);
+        buf[pos++] = ':';
+        pos = pad(buf, pos, minute, 2);
+        // Same rules as LocalTime.toString: seconds and fraction only when non-zero
+        if (second > 0 || nano > 0) {
+            buf[pos++] = ':';
+            pos = pad(buf, pos, second, 2);
+            if (nano > 0) {
+                buf[pos++] = '.';
+                if (nano % 1_000_000 == 0) {
+                    pos = pad(buf, pos, nano / 1_000_000, 3);
+                } else if (nano % 1000 == 0) {
+                    pos = pad(buf, pos, nano / 1000, 6);
+                } else {
+                    pos = pad(buf, pos, nano, 9);
+                }
+            }
+        }
+        String offsetId = offset.getId();
+        offsetId.getChars(0, offsetId.length(), buf, pos);
+        pos += offsetId.length();
+        return new String(buf, 0, pos);
+    }
+
+    private static int pad(char[] buf, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static int digits(String s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01, as LocalDate.toEpochDay computes them (years 0-9999).
+     */
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
     }
 }
@@ -0,0 +1,167 @@
+package com.example.kafka.connect.iidr.writer;
+
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+import com.example.kafka.connect.iidr.writer.StatementCache.StatementKey;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precompiled parameter binding for one statement shape and one pair of
+ * key/value Struct schemas.
+ *
+ * Statement parameters are value columns followed by key columns; a key
+ * column is read from the record key, falling back to the value. For Struct
+ * records the schema fields of every parameter are resolved once, so binding
+ * a row reads the Struct directly with no intermediate maps. Schemaless (Map)
+ * records are read by column name.
+ */
+public final class BindingPlan {
+
+    private final String[] names;
+    private final int valueColumnCount;
+    private final Schema valueSchema;
+    private final Schema keySchema;
+    private final Field[] valueFields;
+    private final Field[] keyFields;
+
+    private BindingPlan(List<String> valueColumns, List<String> keyColumns, Schema valueSchema, Schema keySchema) {
+        int size = valueColumns.size() + keyColumns.size();
+        this.names = new String[size];
+        this.valueColumnCount = valueColumns.size();
+        this.valueSchema = valueSchema;
+        this.keySchema = keySchema;
+        this.valueFields = new Field[size];
+        this.keyFields = new Field[size];
+
+        for (int i = 0; i < size; i++) {
+            boolean keyColumn = i >= valueColumnCount;
+            String name = keyColumn ? keyColumns.get(i - valueColumnCount) : valueColumns.get(i);
+            names[i] = name;
+            valueFields[i] = valueSchema != null ? valueSchema.field(name) : null;
+            keyFields[i] = keyColumn && keySchema != null ? keySchema.field(name) : null;
+        }
+    }
+
+    /**
+     * Number of statement parameters bound per row.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Whether this plan was compiled for the record's key and value schemas.
+     */
+    public boolean matches(ProcessedRecord record) {
+        return schemaOf(record.getValue()) == valueSchema && schemaOf(record.getKey()) == keySchema;
+    }
+
+    /**
+     * Bind one row starting at the given 1-based parameter index.
+     *
+     * @return the index of the next parameter
+     */
+    public int bind(PreparedStatement ps, int parameterIndex, ProcessedRecord record) throws SQLException {
+        for (int i = 0; i < names.length; i++) {
+            ps.setObject(parameterIndex++, getParameter(i, record));
+        }
+        return parameterIndex;
+    }
+
+    /**
+     * Value of the i-th (0-based) parameter of a row.
+     */
+    public Object getParameter(int i, ProcessedRecord record) {
+        if (i >= valueColumnCount) {
+            Object value = read(record.getKey(), keyFields[i], i);
+            if (value != null) {
+                return value;
+            }
+        }
+        return read(record.getValue(), valueFields[i], i);
+    }
+
+    private Object read(Object container, Field field, int i) {
+        if (container instanceof Struct) {
+            return field != null ? ((Struct) container).get(field) : null;
+        }
+        if (container instanceof Map) {
+            return ((Map<?, ?>) container).get(names[i]);
+        }
+        return null;
+    }
+
+    private static Schema schemaOf(Object container) {
+        return container instanceof Struct ? ((Struct) container).schema() : null;
+    }
+
+    /**
+     * Compiled plans of one writer, keyed by statement shape and record schemas.
+     * Consecutive records usually share schemas, so callers pass the previous
+     * plan back in and only a schema change costs a lookup.
+     *
+     * Not thread-safe: each writer owns one.
+     */
+    public static class Cache {
+
+        private static final int MAX_PLANS = 1024;
+
+        private final Map<PlanKey, BindingPlan> plans = new HashMap<>();
+
+        public BindingPlan get(BindingPlan previous, StatementKey statement, List<String> valueColumns,
+                               List<String> keyColumns, ProcessedRecord record) {
+            if (previous != null && previous.matches(record)) {
+                return previous;
+            }
+
+            Schema valueSchema = schemaOf(record.getValue());
+            Schema keySchema = schemaOf(record.getKey());
+            PlanKey key = new PlanKey(statement, valueSchema, keySchema);
+            BindingPlan plan = plans.get(key);
+            if (plan == null) {
+                if (plans.size() >= MAX_PLANS) {
+                    plans.clear();
+                }
+                plan = new BindingPlan(valueColumns, keyColumns, valueSchema, keySchema);
+                plans.put(key, plan);
+            }
+            return plan;
+        }
+    }
+
+    private static final class PlanKey {
+        private final StatementKey statement;
+        private final Schema valueSchema;
+        private final Schema keySchema;
+
+        PlanKey(StatementKey statement, Schema valueSchema, Schema keySchema) {
+            this.statement = statement;
+            this.valueSchema = valueSchema;
+            this.keySchema = keySchema;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return valueSchema == other.valueSchema
+                    && keySchema == other.keySchema
+                    && statement.equals(other.statement);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * statement.hashCode() + System.identityHashCode(valueSchema))
+                    + System.identityHashCode(keySchema);
+        }
+    }
+}
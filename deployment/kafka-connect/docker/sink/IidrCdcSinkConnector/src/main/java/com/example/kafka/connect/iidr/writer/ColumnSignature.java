@@ -0,0 +1,155 @@
+package com.example.kafka.connect.iidr.writer;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ordered set of columns carried by a record value.
+ *
+ * Records of one table only share a prepared batch if they share a signature;
+ * schemaless (JSON) values of the same table may differ in their key sets.
+ * Signatures are interned by an {@link Interner}, so grouping records compares
+ * them by identity and the hash of a column list is computed once.
+ */
+public final class ColumnSignature {
+
+    public static final ColumnSignature EMPTY = new ColumnSignature(Collections.emptyList());
+
+    private final List<String> columns;
+    private final int hash;
+
+    private ColumnSignature(List<String> columns) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.hash = columns.hashCode();
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColumnSignature)) {
+            return false;
+        }
+        ColumnSignature that = (ColumnSignature) o;
+        return hash == that.hash && columns.equals(that.columns);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return columns.toString();
+    }
+
+    /**
+     * Interns the signatures of record values. Struct values are looked up by
+     * schema identity; Map values by an order-insensitive hash of their key set,
+     * without copying the keys unless the signature is new.
+     *
+     * Not thread-safe: each writer owns one.
+     */
+    public static class Interner {
+
+        private static final int MAX_SIGNATURES = 1024;
+
+        private final Map<Schema, ColumnSignature> bySchema = new IdentityHashMap<>();
+        private final Map<Integer, List<ColumnSignature>> byKeySetHash = new HashMap<>();
+        private final Map<List<String>, ColumnSignature> byColumns = new HashMap<>();
+
+        /**
+         * Signature of a record value; {@link #EMPTY} for values without columns.
+         */
+        public ColumnSignature of(Object value) {
+            if (value instanceof Struct) {
+                return of(((Struct) value).schema());
+            }
+            if (value instanceof Map) {
+                return of((Map<?, ?>) value);
+            }
+            return EMPTY;
+        }
+
+        private ColumnSignature of(Schema schema) {
+            ColumnSignature signature = bySchema.get(schema);
+            if (signature == null) {
+                List<String> columns = new ArrayList<>(schema.fields().size());
+                for (Field field : schema.fields()) {
+                    columns.add(field.name());
+                }
+                signature = intern(columns);
+                bySchema.put(schema, signature);
+            }
+            return signature;
+        }
+
+        private ColumnSignature of(Map<?, ?> map) {
+            if (map.isEmpty()) {
+                return EMPTY;
+            }
+
+            int keySetHash = 0;
+            for (Object key : map.keySet()) {
+                keySetHash += String.valueOf(key).hashCode();
+            }
+
+            List<ColumnSignature> candidates = byKeySetHash.get(keySetHash);
+            if (candidates != null) {
+                for (ColumnSignature candidate : candidates) {
+                    if (matches(candidate, map)) {
+                        return candidate;
+                    }
+                }
+            }
+
+            List<String> columns = new ArrayList<>(map.size());
+            for (Object key : map.keySet()) {
+                columns.add(String.valueOf(key));
+            }
+            ColumnSignature signature = intern(columns);
+            byKeySetHash.computeIfAbsent(keySetHash, h -> new ArrayList<>(1)).add(signature);
+            return signature;
+        }
+
+        private boolean matches(ColumnSignature signature, Map<?, ?> map) {
+            if (signature.size() != map.size()) {
+                return false;
+            }
+            for (String column : signature.columns) {
+                if (!map.containsKey(column)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private ColumnSignature intern(List<String> columns) {
+            if (byColumns.size() >= MAX_SIGNATURES) {
+                // Unbounded shape churn; start over rather than grow without limit
+                bySchema.clear();
+                byKeySetHash.clear();
+                byColumns.clear();
+            }
+            return byColumns.computeIfAbsent(columns, ColumnSignature::new);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.kafka.connect.iidr.writer;
+
+import com.example.kafka.connect.iidr.IidrCdcSinkConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A small JDBC connection pool shared by the writers of one task.
+ *
+ * - Validation on borrow: a connection idle for more than {@link #VALIDATION_BYPASS_MS}
+ *   is checked with {@link Connection#isValid(int)}; a dead one is discarded and
+ *   replaced transparently with a new connection.
+ * - Max lifetime: connections older than connection.max.lifetime.ms are closed
+ *   when returned or found idle, so DB-side timeouts never hit an active one.
+ * - Idle eviction: connections unused for connection.idle.timeout.ms are closed.
+ *
+ * Each connection carries its own {@link StatementCache}; the pool tracks a DDL
+ * generation per table so cached statements of a changed table are re-prepared.
+ *
+ * Connections are handed out with autoCommit disabled; borrowers own the
+ * transaction and must commit or roll back before releasing.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(ConnectionPool.class.getName());
+
+    /** Connections used this recently are assumed alive and not re-validated. */
+    static final long VALIDATION_BYPASS_MS = 500L;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final long BORROW_TIMEOUT_MS = 30_000L;
+
+    private final IidrCdcSinkConfig config;
+    private final int maxSize;
+    private final long maxLifetimeMs;
+    private final long idleTimeoutMs;
+    private final int statementCacheSize;
+    private final ConcurrentHashMap<String, Integer> tableGenerations = new ConcurrentHashMap<>();
+
+    // Most recently used first, so the warmest connections are reused
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private int totalConnections;
+    private boolean closed;
+
+    public ConnectionPool(IidrCdcSinkConfig config, int maxSize) {
+        this.config = config;
+        this.maxSize = maxSize;
+        this.maxLifetimeMs = config.getConnectionMaxLifetimeMs();
+        this.idleTimeoutMs = config.getConnectionIdleTimeoutMs();
+        this.statementCacheSize = config.getStatementCacheSize();
+        log.info("ConnectionPool initialized with maxSize=" + maxSize +
+                ", maxLifetimeMs=" + maxLifetimeMs + ", idleTimeoutMs=" + idleTimeoutMs);
+    }
+
+    /**
+     * Borrow a validated connection, opening a new one if none is idle.
+     */
+    public PooledConnection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT_MS;
+        while (true) {
+            PooledConnection candidate;
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                evictIdle();
+                candidate = idle.pollFirst();
+                if (candidate == null) {
+                    if (totalConnections < maxSize) {
+                        totalConnections++;
+                    } else {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw new SQLException("Timed out waiting for a pooled connection (maxSize=" + maxSize + ")");
+                        }
+                        try {
+                            wait(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+                        }
+                        continue;
+                    }
+                }
+            }
+
+            if (candidate == null) {
+                return open();
+            }
+            if (isUsable(candidate)) {
+                candidate.touch();
+                return candidate;
+            }
+            log.info("Discarding stale pooled connection, reconnecting");
+            discard(candidate);
+        }
+    }
+
+    /**
+     * Return a connection to the pool. Its transaction must already be finished.
+     */
+    public void release(PooledConnection pooled) {
+        if (pooled == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!closed && !isExpired(pooled, System.currentTimeMillis())) {
+                pooled.touch();
+                idle.addFirst(pooled);
+                notifyAll();
+                return;
+            }
+        }
+        discard(pooled);
+    }
+
+    /**
+     * Close and forget a connection that is known or suspected to be broken.
+     */
+    public void invalidate(PooledConnection pooled) {
+        if (pooled != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Mark a table's cached statements as stale on every connection, after DDL changed it.
+     */
+    public void invalidateStatements(String tableName) {
+        tableGenerations.merge(tableName, 1, Integer::sum);
+    }
+
+    int getTableGeneration(String tableName) {
+        return tableGenerations.getOrDefault(tableName, 0);
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection connection = DriverManager.getConnection(
+                    config.getConnectionUrl(),
+                    config.getConnectionUser(),
+                    config.getConnectionPassword()
+            );
+            connection.setAutoCommit(false);
+            return new PooledConnection(connection, this, statementCacheSize);
+        } catch (SQLException e) {
+            synchronized (this) {
+                totalConnections--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (isExpired(pooled, now)) {
+            return false;
+        }
+        if (now - pooled.getLastUsedAtMs() < VALIDATION_BYPASS_MS) {
+            return true;
+        }
+        try {
+            return pooled.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMs > 0 && now - pooled.getCreatedAtMs() >= maxLifetimeMs;
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.iterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean idleTooLong = idleTimeoutMs > 0 && now - pooled.getLastUsedAtMs() >= idleTimeoutMs;
+            if (idleTooLong || isExpired(pooled, now)) {
+                it.remove();
+                totalConnections--;
+                closeQuietly(pooled);
+            }
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        closeQuietly(pooled);
+        synchronized (this) {
+            totalConnections--;
+            notifyAll();
+        }
+    }
+
+    private void closeQuietly(PooledConnection pooled) {
+        try {
+            pooled.close();
+        } catch (SQLException e) {
+            log.log(Level.FINE, "Error closing pooled connection", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (PooledConnection pooled : idle) {
+            closeQuietly(pooled);
+        }
+        totalConnections -= idle.size();
+        idle.clear();
+        notifyAll();
+    }
+}
@@ -25,14 +25,17 @@ import java.util.logging.Logger;
  * - table_name: VARCHAR(255) - TableName header value if present
  * - entry_type: VARCHAR(10) - A_ENTTYP header value if present
  * - created_at: TIMESTAMP - When the record was inserted
+ *
+ * Corrupt events are inserted in the transaction of the data they were read
+ * with, so a batch that is rolled back and redelivered does not record them twice.
  */
 public class CorruptEventWriter implements AutoCloseable {
 
     private static final Logger log = Logger.getLogger(CorruptEventWriter.class.getName());
 
-    private final Connection connection;
+    private final ConnectionPool connectionPool;
     private final String tableName;
-    private PreparedStatement insertStatement;
+    private final String insertSql;
 
     private static final String INSERT_SQL =
             "INSERT INTO %s (topic, kafka_partition, kafka_offset, record_key, record_value, headers, " +
@@ -57,60 +60,78 @@ public class CorruptEventWriter implements AutoCloseable {
                     "  INDEX idx_created_at (created_at)" +
                     ")";
 
-    public CorruptEventWriter(Connection connection, String tableName, boolean autoCreate)
+    public CorruptEventWriter(ConnectionPool connectionPool, String tableName, boolean autoCreate)
             throws SQLException {
-        this.connection = connection;
+        this.connectionPool = connectionPool;
         this.tableName = tableName;
+        this.insertSql = String.format(INSERT_SQL, tableName);
 
         if (autoCreate) {
             ensureTableExists();
         }
-
-        this.insertStatement = connection.prepareStatement(
-                String.format(INSERT_SQL, tableName)
-        );
     }
 
     private void ensureTableExists() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        PooledConnection pooled = connectionPool.borrow();
+        try (Statement stmt = pooled.getConnection().createStatement()) {
             stmt.execute(String.format(CREATE_TABLE_SQL, tableName));
+            pooled.getConnection().commit();
             log.info("Ensured corrupt events table exists: " + tableName);
+        } catch (SQLException e) {
+            rollbackQuietly(pooled);
+            throw e;
+        } finally {
+            connectionPool.release(pooled);
         }
     }
 
     /**
-     * Write corrupt records to the error table.
+     * Write corrupt records to the error table in the connection's current
+     * transaction. The caller commits or rolls them back with the data.
      */
-    public void write(List<CorruptRecord> records) throws SQLException {
+    public void write(Connection connection, List<CorruptRecord> records) throws SQLException {
         if (records.isEmpty()) {
             return;
         }
 
         log.info("Writing " + records.size() + " corrupt records to " + tableName);
 
-        for (CorruptRecord corrupt : records) {
-            SinkRecord record = corrupt.getRecord();
-
-            try {
-                insertStatement.setString(1, record.topic());
-                insertStatement.setInt(2, record.kafkaPartition());
-                insertStatement.setLong(3, record.kafkaOffset());
-                insertStatement.setString(4, serializeToJson(record.key()));
-                insertStatement.setString(5, serializeToJson(record.value()));
-                insertStatement.setString(6, serializeHeaders(record));
-                insertStatement.setString(7, truncate(corrupt.getReason(), 1000));
-                insertStatement.setString(8, HeaderExtractor.extractTableName(record));
-                insertStatement.setString(9, HeaderExtractor.extractEntryType(record));
-                insertStatement.setTimestamp(10, Timestamp.from(Instant.now()));
-
-                insertStatement.addBatch();
-
-            } catch (Exception e) {
-                log.severe("Failed to prepare corrupt record for insertion: " + e.getMessage());
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertSql)) {
+            for (CorruptRecord corrupt : records) {
+                addToBatch(insertStatement, corrupt);
             }
+            insertStatement.executeBatch();
         }
+    }
 
-        insertStatement.executeBatch();
+    private void addToBatch(PreparedStatement insertStatement, CorruptRecord corrupt) {
+        SinkRecord record = corrupt.getRecord();
+
+        try {
+            insertStatement.setString(1, record.topic());
+            insertStatement.setInt(2, record.kafkaPartition());
+            insertStatement.setLong(3, record.kafkaOffset());
+            insertStatement.setString(4, serializeToJson(record.key()));
+            insertStatement.setString(5, serializeToJson(record.value()));
+            insertStatement.setString(6, serializeHeaders(record));
+            insertStatement.setString(7, truncate(corrupt.getReason(), 1000));
+            insertStatement.setString(8, corrupt.getTableName());
+            insertStatement.setString(9, corrupt.getEntryType());
+            insertStatement.setTimestamp(10, Timestamp.from(Instant.now()));
+
+            insertStatement.addBatch();
+
+        } catch (Exception e) {
+            log.severe("Failed to prepare corrupt record for insertion: " + e.getMessage());
+        }
+    }
+
+    private void rollbackQuietly(PooledConnection pooled) {
+        try {
+            pooled.getConnection().rollback();
+        } catch (SQLException e) {
+            log.warning("Failed to rollback corrupt events transaction: " + e.getMessage());
+        }
     }
 
     private String serializeToJson(Object obj) {
@@ -179,9 +200,7 @@ public class CorruptEventWriter implements AutoCloseable {
 
     @Override
     public void close() throws SQLException {
-        if (insertStatement != null) {
-            insertStatement.close();
-        }
+        // Connections belong to the pool; nothing to release here
     }
 
     /**
@@ -190,10 +209,21 @@ public class CorruptEventWriter implements AutoCloseable {
     public static class CorruptRecord {
         private final SinkRecord record;
         private final String reason;
+        private final String tableName;
+        private final String entryType;
 
         public CorruptRecord(SinkRecord record, String reason) {
+            this(record, reason, HeaderExtractor.extractTableName(record), HeaderExtractor.extractEntryType(record));
+        }
+
+        /**
+         * Create a corrupt record whose TableName and A_ENTTYP headers were already decoded.
+         */
+        public CorruptRecord(SinkRecord record, String reason, String tableName, String entryType) {
             this.record = record;
             this.reason = reason;
+            this.tableName = tableName;
+            this.entryType = entryType;
         }
 
         public SinkRecord getRecord() {
@@ -203,5 +233,13 @@ public class CorruptEventWriter implements AutoCloseable {
         public String getReason() {
             return reason;
         }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getEntryType() {
+            return entryType;
+        }
     }
 }
@@ -1,11 +1,17 @@
 package com.example.kafka.connect.iidr.writer;
 
 import com.example.kafka.connect.iidr.IidrCdcSinkConfig;
+import com.example.kafka.connect.iidr.dialect.BulkLoader;
 import com.example.kafka.connect.iidr.dialect.Dialect;
+import com.example.kafka.connect.iidr.dialect.SqlErrorCategory;
 import com.example.kafka.connect.iidr.operation.CdcOperation;
+import com.example.kafka.connect.iidr.writer.CorruptEventWriter.CorruptRecord;
+import com.example.kafka.connect.iidr.writer.StatementCache.StatementKey;
+import com.example.kafka.connect.iidr.writer.TableMetadataCache.TableMetadata;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
 
 import java.sql.*;
 import java.util.*;
@@ -13,315 +19,849 @@ import java.util.logging.Logger;
 
 /**
  * Writes CDC records to the target database using JDBC.
+ *
+ * A connection is borrowed from the pool on the first write of a transaction
+ * and held until {@link #commit()} or {@link #rollback()} returns it.
  */
 public class JdbcWriter implements AutoCloseable {
 
     private static final Logger log = Logger.getLogger(JdbcWriter.class.getName());
 
-    private final Connection connection;
+    // Upper bound for write.mode=multi_row; larger statements stop paying off in parse and plan time
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final ConnectionPool connectionPool;
+    private final TableMetadataCache metadataCache;
     private final IidrCdcSinkConfig config;
     private final Dialect dialect;
-    private final Map<String, PreparedStatement> statementCache;
-
-    public JdbcWriter(Connection connection, IidrCdcSinkConfig config, Dialect dialect) {
-        this.connection = connection;
+    private final Set<String> transactionTables = new HashSet<>();
+    private final ColumnSignature.Interner signatures = new ColumnSignature.Interner();
+    private final BindingPlan.Cache bindingPlans = new BindingPlan.Cache();
+    private final Map<String, List<String>> primaryKeys = new HashMap<>();
+    private final BulkLoader bulkLoader;
+    private PooledConnection current;
+
+    public JdbcWriter(ConnectionPool connectionPool, TableMetadataCache metadataCache,
+                      IidrCdcSinkConfig config, Dialect dialect) {
+        this.connectionPool = connectionPool;
+        this.metadataCache = metadataCache;
         this.config = config;
         this.dialect = dialect;
-        this.statementCache = new HashMap<>();
+        this.bulkLoader = dialect.getBulkLoader();
     }
 
     /**
-     * Write a batch of processed records to the target table.
+     * Connection of the current transaction, borrowed on first use.
      */
-    public void write(String tableName, List<ProcessedRecord> records) throws SQLException {
-        if (records.isEmpty()) {
-            return;
+    private Connection connection() throws SQLException {
+        if (current == null) {
+            current = connectionPool.borrow();
         }
+        return current.getConnection();
+    }
 
-        log.fine("Writing " + records.size() + " records to table " + tableName);
+    /**
+     * Prepared statement cache of the current transaction's connection.
+     */
+    private StatementCache statementCache() throws SQLException {
+        connection();
+        return current.getStatementCache();
+    }
+
+    /**
+     * Commit the current transaction, if any, and return its connection to the pool.
+     */
+    public void commit() throws SQLException {
+        transactionTables.clear();
+        if (current == null) {
+            return;
+        }
+        PooledConnection pooled = current;
+        current = null;
+        try {
+            pooled.getConnection().commit();
+        } catch (SQLException e) {
+            connectionPool.invalidate(pooled);
+            throw e;
+        }
+        connectionPool.release(pooled);
+    }
 
-        // Ensure table exists if auto.create is enabled
-        if (config.isAutoCreate()) {
-            ensureTableExists(tableName, records.get(0));
+    /**
+     * Roll back the current transaction, if any. A connection that cannot be
+     * rolled back is assumed broken and discarded instead of being returned.
+     *
+     * Cached metadata of every table touched by the transaction is dropped, since
+     * the failure may mean the cache is stale (or the DDL was rolled back with it).
+     */
+    public void rollback() {
+        for (String tableName : transactionTables) {
+            metadataCache.invalidate(tableName);
         }
+        transactionTables.clear();
+        if (current == null) {
+            return;
+        }
+        PooledConnection pooled = current;
+        current = null;
+        try {
+            pooled.getConnection().rollback();
+            connectionPool.release(pooled);
+        } catch (SQLException e) {
+            log.warning("Rollback failed, discarding connection: " + e.getMessage());
+            connectionPool.invalidate(pooled);
+        }
+    }
 
-        // Evolve table schema if auto.evolve is enabled
-        if (config.isAutoEvolve()) {
-            evolveTable(tableName, records.get(0));
+    /**
+     * Insert corrupt events in the current transaction, so they are committed
+     * or rolled back together with the data.
+     */
+    public void writeCorrupt(CorruptEventWriter corruptEventWriter, List<CorruptRecord> records)
+            throws SQLException {
+        corruptEventWriter.write(connection(), records);
+    }
+
+    /**
+     * Write a batch of processed records to the target table.
+     *
+     * @return records rejected by the database when iidr.errors.bisect is enabled
+     */
+    public List<CorruptRecord> write(String tableName, List<ProcessedRecord> records) throws SQLException {
+        if (records.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        // Group by operation type
-        List<ProcessedRecord> inserts = new ArrayList<>();
-        List<ProcessedRecord> updates = new ArrayList<>();
-        List<ProcessedRecord> upserts = new ArrayList<>();
-        List<ProcessedRecord> deletes = new ArrayList<>();
+        ensureSchema(tableName, records);
+        return apply(tableName, records);
+    }
+
+    /**
+     * Run auto.create / auto.evolve for the target table, if enabled.
+     *
+     * @return whether any DDL was executed
+     */
+    public boolean ensureSchema(String tableName, List<ProcessedRecord> records) throws SQLException {
+        if (!config.isAutoCreate() && !config.isAutoEvolve()) {
+            return false;
+        }
 
+        // DDL needs a record carrying a row image; a batch of pure deletes has none.
+        // Each column set in the batch is checked once, with its first record as the sample.
+        Map<ColumnSignature, ProcessedRecord> samples = new LinkedHashMap<>();
         for (ProcessedRecord record : records) {
-            switch (record.getOperation()) {
-                case INSERT:
-                    inserts.add(record);
-                    break;
-                case UPDATE:
-                    updates.add(record);
-                    break;
-                case UPSERT:
-                    upserts.add(record);
-                    break;
-                case DELETE:
-                    deletes.add(record);
-                    break;
+            if (record.getValue() != null) {
+                samples.putIfAbsent(signatures.of(record.getValue()), record);
             }
         }
 
-        // Process each operation type
-        if (!inserts.isEmpty()) {
-            executeInserts(tableName, inserts);
+        boolean executedDdl = false;
+        for (Map.Entry<ColumnSignature, ProcessedRecord> entry : samples.entrySet()) {
+            executedDdl |= ensureSchema(tableName, entry.getKey(), entry.getValue());
         }
-        if (!updates.isEmpty()) {
-            executeUpdates(tableName, updates);
+        return executedDdl;
+    }
+
+    private boolean ensureSchema(String tableName, ColumnSignature signature, ProcessedRecord sample)
+            throws SQLException {
+        // Column signatures already checked against the cached table need no catalog query
+        TableMetadata table = metadataCache.get(tableName);
+        if (table != null && table.isVerified(signature)) {
+            return false;
+        }
+
+        transactionTables.add(tableName);
+        if (table == null) {
+            table = metadataCache.load(connection(), dialect, tableName);
         }
-        if (!upserts.isEmpty()) {
-            executeUpserts(tableName, upserts);
+
+        boolean executedDdl = false;
+        if (table == null) {
+            // Ensure table exists if auto.create is enabled
+            if (!config.isAutoCreate()) {
+                return false;
+            }
+            log.info("Auto-creating table: " + tableName);
+            createTable(tableName, sample);
+            executedDdl = true;
+            table = metadataCache.load(connection(), dialect, tableName);
+        } else if (config.isAutoEvolve()) {
+            // Evolve table schema if auto.evolve is enabled
+            if (evolveTable(tableName, table, signature.getColumns(), sample)) {
+                executedDdl = true;
+                table = metadataCache.load(connection(), dialect, tableName);
+            }
         }
-        if (!deletes.isEmpty()) {
-            executeDeletes(tableName, deletes);
+
+        if (table != null) {
+            table.markVerified(signature);
         }
+        return executedDdl;
     }
 
-    private void executeInserts(String tableName, List<ProcessedRecord> records)
-            throws SQLException {
-        ProcessedRecord sample = records.get(0);
-        List<String> columns = extractColumnNames(sample);
+    /**
+     * Resolve the primary key columns of a table for a batch of its records:
+     * the table's own pk.fields, else with pk.discovery the key read from the
+     * catalog, else the global pk.fields. Discovered columns are named as the
+     * records name them, since record fields are looked up by exact name.
+     */
+    public List<String> resolvePrimaryKey(String tableName, List<ProcessedRecord> records) throws SQLException {
+        List<String> pkColumns = config.getPkFields(tableName);
+        if (config.isPkDiscovery() && !config.hasTablePkFields(tableName)) {
+            TableMetadata table = metadataCache.get(tableName);
+            if (table == null) {
+                table = metadataCache.load(connection(), dialect, tableName);
+            }
+            if (table != null && !table.getPrimaryKey().isEmpty()) {
+                pkColumns = recordFieldNames(table.getPrimaryKey(), records.get(0));
+            }
+        }
+        primaryKeys.put(tableName, pkColumns);
+        return pkColumns;
+    }
 
-        String sql = dialect.buildInsertSql(tableName, columns);
-        log.fine("INSERT SQL: " + sql);
+    private List<String> recordFieldNames(List<String> catalogColumns, ProcessedRecord sample) {
+        List<String> names = new ArrayList<>(catalogColumns.size());
+        for (String column : catalogColumns) {
+            String name = matchFieldName(sample.getKey(), column);
+            if (name == null) {
+                name = matchFieldName(sample.getValue(), column);
+            }
+            names.add(name != null ? name : column);
+        }
+        return names;
+    }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            for (ProcessedRecord record : records) {
-                setParameters(ps, record, columns);
-                ps.addBatch();
+    private static String matchFieldName(Object container, String column) {
+        if (container instanceof Struct) {
+            for (Field field : ((Struct) container).schema().fields()) {
+                if (field.name().equalsIgnoreCase(column)) {
+                    return field.name();
+                }
+            }
+        } else if (container instanceof Map) {
+            for (Object key : ((Map<?, ?>) container).keySet()) {
+                if (key instanceof String && ((String) key).equalsIgnoreCase(column)) {
+                    return (String) key;
+                }
             }
-            ps.executeBatch();
         }
+        return null;
     }
 
-    private void executeUpdates(String tableName, List<ProcessedRecord> records)
-            throws SQLException {
-        ProcessedRecord sample = records.get(0);
-        List<String> columns = extractColumnNames(sample);
-        List<String> pkColumns = config.getPkFields();
+    /**
+     * Primary key columns resolved for a table by its last {@link #resolvePrimaryKey}.
+     */
+    private List<String> pkColumns(String tableName) {
+        List<String> pkColumns = primaryKeys.get(tableName);
+        return pkColumns != null ? pkColumns : config.getPkFields(tableName);
+    }
 
-        if (pkColumns.isEmpty()) {
-            log.warning("No primary key fields configured, falling back to upsert for UPDATE operations");
-            executeUpserts(tableName, records);
-            return;
+    /**
+     * Write records to the target table without running any DDL.
+     *
+     * @return records rejected by the database when iidr.errors.bisect is enabled
+     */
+    public List<CorruptRecord> apply(String tableName, List<ProcessedRecord> records) throws SQLException {
+        if (records.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        String sql = dialect.buildUpsertSql(tableName, columns, pkColumns);
-        log.fine("UPDATE SQL: " + sql);
+        log.fine("Writing " + records.size() + " records to table " + tableName);
+        transactionTables.add(tableName);
+        List<String> pkColumns = resolvePrimaryKey(tableName, records);
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            for (ProcessedRecord record : records) {
-                setUpdateParameters(ps, record, columns, pkColumns);
-                ps.addBatch();
+        // Collapse repeated changes to the same key if compaction is enabled
+        if (config.isCompactionEnabled()) {
+            records = RecordCompactor.compact(records, pkColumns);
+        }
+
+        if (!config.isErrorsBisect()) {
+            applyOperations(tableName, records);
+            return Collections.emptyList();
+        }
+
+        List<CorruptRecord> rejected = new ArrayList<>();
+        applyIsolating(tableName, records, rejected);
+        if (!rejected.isEmpty()) {
+            log.warning("Isolated " + rejected.size() + " rejected records in table " + tableName);
+        }
+        return rejected;
+    }
+
+    /**
+     * Apply records inside a savepoint. If the database rejects the data, roll
+     * back to the savepoint and bisect the records until the offending ones are
+     * isolated; every other record is still applied, in order.
+     */
+    private void applyIsolating(String tableName, List<ProcessedRecord> records,
+                                List<CorruptRecord> rejected) throws SQLException {
+        Connection connection = connection();
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            applyOperations(tableName, records);
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            if (dialect.classifyError(e) != SqlErrorCategory.DATA) {
+                throw e;
             }
-            ps.executeBatch();
+
+            if (records.size() == 1) {
+                ProcessedRecord record = records.get(0);
+                rejected.add(new CorruptRecord(record.getSourceRecord(), "SQL error: " + describeError(e)));
+                return;
+            }
+
+            int middle = records.size() / 2;
+            applyIsolating(tableName, records.subList(0, middle), rejected);
+            applyIsolating(tableName, records.subList(middle, records.size()), rejected);
+            return;
         }
+        releaseSavepoint(connection, savepoint);
     }
 
-    private void executeUpserts(String tableName, List<ProcessedRecord> records)
-            throws SQLException {
-        ProcessedRecord sample = records.get(0);
-        List<String> columns = extractColumnNames(sample);
-        List<String> pkColumns = config.getPkFields();
+    private void releaseSavepoint(Connection connection, Savepoint savepoint) {
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // Not supported by every driver (e.g. Oracle); the savepoint ends with the transaction
+            log.finest("Could not release savepoint: " + e.getMessage());
+        }
+    }
 
-        String sql = dialect.buildUpsertSql(tableName, columns, pkColumns);
-        log.fine("UPSERT SQL: " + sql);
+    /**
+     * Most specific message of an error chain, e.g. the row error behind a BatchUpdateException.
+     */
+    private String describeError(SQLException e) {
+        SQLException detail = e;
+        while (detail.getNextException() != null && detail.getNextException() != detail) {
+            detail = detail.getNextException();
+        }
+        String state = detail.getSQLState() != null ? " [SQLState " + detail.getSQLState() + "]" : "";
+        return detail.getMessage() + state;
+    }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            for (ProcessedRecord record : records) {
-                setParameters(ps, record, columns);
-                ps.addBatch();
+    private void applyOperations(String tableName, List<ProcessedRecord> records) throws SQLException {
+        // Apply operations in arrival order, batching consecutive records of the same type,
+        // so that e.g. a DELETE followed by a re-INSERT of the same key is not reordered
+        int runStart = 0;
+        for (int i = 1; i <= records.size(); i++) {
+            CdcOperation operation = records.get(runStart).getOperation();
+            if (i == records.size() || records.get(i).getOperation() != operation) {
+                executeOperation(tableName, operation, records.subList(runStart, i));
+                runStart = i;
             }
-            ps.executeBatch();
         }
     }
 
-    private void executeDeletes(String tableName, List<ProcessedRecord> records)
+    private void executeOperation(String tableName, CdcOperation operation, List<ProcessedRecord> records)
             throws SQLException {
-        List<String> pkColumns = config.getPkFields();
-        if (pkColumns.isEmpty()) {
-            log.warning("No primary key fields configured, cannot execute DELETE operations");
+        if (operation == CdcOperation.DELETE) {
+            executeDeletes(tableName, records);
             return;
         }
 
-        String sql = dialect.buildDeleteSql(tableName, pkColumns);
-        log.fine("DELETE SQL: " + sql);
+        // Schemaless values of one table may carry different columns, and each
+        // column set needs its own statement. The common case is a single one.
+        ColumnSignature first = signatures.of(records.get(0).getValue());
+        boolean uniform = true;
+        for (int i = 1; i < records.size() && uniform; i++) {
+            uniform = signatures.of(records.get(i).getValue()) == first;
+        }
+        if (uniform) {
+            executeSignature(tableName, operation, first, records);
+            return;
+        }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            for (ProcessedRecord record : records) {
-                setDeleteParameters(ps, record, pkColumns);
-                ps.addBatch();
+        // Group by signature, but keep the changes to one key in order: if a key
+        // shows up again with another column set, write the groups collected so far first
+        List<String> pkColumns = pkColumns(tableName);
+        Map<ColumnSignature, List<ProcessedRecord>> groups = new LinkedHashMap<>();
+        Map<Object, ColumnSignature> keySignatures = new HashMap<>();
+        for (ProcessedRecord record : records) {
+            ColumnSignature signature = signatures.of(record.getValue());
+            Object pk = pkColumns.isEmpty() ? null : record.getPrimaryKey(pkColumns);
+            if (pk != null) {
+                ColumnSignature previous = keySignatures.put(pk, signature);
+                if (previous != null && previous != signature) {
+                    executeGroups(tableName, operation, groups);
+                    groups.clear();
+                    keySignatures.clear();
+                    keySignatures.put(pk, signature);
+                }
             }
-            ps.executeBatch();
+            groups.computeIfAbsent(signature, s -> new ArrayList<>()).add(record);
         }
+        executeGroups(tableName, operation, groups);
     }
 
-    // Parameter Setting Methods
-
-    private void setParameters(PreparedStatement ps, ProcessedRecord record,
-                               List<String> columns) throws SQLException {
-        Map<String, Object> values = extractValueMap(record);
-        int idx = 1;
-        for (String col : columns) {
-            ps.setObject(idx++, values.get(col));
+    private void executeGroups(String tableName, CdcOperation operation,
+                               Map<ColumnSignature, List<ProcessedRecord>> groups) throws SQLException {
+        if (groups.size() > 1) {
+            log.fine("Splitting " + operation + " batch for table " + tableName + " into "
+                    + groups.size() + " column signatures");
+        }
+        for (Map.Entry<ColumnSignature, List<ProcessedRecord>> group : groups.entrySet()) {
+            executeSignature(tableName, operation, group.getKey(), group.getValue());
         }
     }
 
-    private void setUpdateParameters(PreparedStatement ps, ProcessedRecord record,
-                                     List<String> columns, List<String> pkColumns) throws SQLException {
-        Map<String, Object> values = extractValueMap(record);
-        Map<String, Object> keyValues = extractKeyMap(record);
+    private void executeSignature(String tableName, CdcOperation operation, ColumnSignature signature,
+                                  List<ProcessedRecord> records) throws SQLException {
+        List<String> columns = signature.getColumns();
+        if (operation == CdcOperation.UPSERT && useBulkLoader(tableName, records)) {
+            executeBulkUpserts(tableName, columns, records);
+            return;
+        }
 
-        // First set non-PK columns for SET clause
-        List<String> nonPkColumns = new ArrayList<>(columns);
-        nonPkColumns.removeAll(pkColumns);
+        if (records.size() > 1 && operation == CdcOperation.UPSERT && useArrayBinding(tableName)) {
+            executeArrayUpserts(tableName, columns, records);
+            return;
+        }
 
-        int idx = 1;
-        for (String col : nonPkColumns) {
-            ps.setObject(idx++, values.get(col));
+        if (records.size() > 1 && (operation == CdcOperation.INSERT || operation == CdcOperation.UPSERT)
+                && config.isMultiRowWriteMode() && dialect.supportsMultiRowValues()) {
+            executeMultiRow(tableName, operation, columns, records);
+            return;
         }
 
-        // Then set PK columns for WHERE clause
-        for (String col : pkColumns) {
-            ps.setObject(idx++, keyValues.getOrDefault(col, values.get(col)));
+        switch (operation) {
+            case INSERT:
+                executeInserts(tableName, columns, records);
+                break;
+            case UPDATE:
+                executeUpdates(tableName, columns, records);
+                break;
+            case UPSERT:
+                executeUpserts(tableName, columns, records);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation);
         }
     }
 
-    private void setDeleteParameters(PreparedStatement ps, ProcessedRecord record,
-                                     List<String> pkColumns) throws SQLException {
-        Map<String, Object> keyValues = extractKeyMap(record);
-        Map<String, Object> values = extractValueMap(record);
+    /**
+     * Write INSERT/UPSERT records with many rows per statement (write.mode=multi_row).
+     *
+     * A statement carries as many rows as the dialect's bind-parameter limit
+     * allows, up to {@link #MAX_ROWS_PER_STATEMENT}. A key never appears twice in
+     * one statement, since PostgreSQL rejects an ON CONFLICT statement that would
+     * touch the same row twice.
+     */
+    private void executeMultiRow(String tableName, CdcOperation operation, List<String> columns,
+                                 List<ProcessedRecord> records) throws SQLException {
+        int maxRows = Math.min(MAX_ROWS_PER_STATEMENT, dialect.getMaxBindParameters() / Math.max(1, columns.size()));
+        if (maxRows < 2) {
+            if (operation == CdcOperation.INSERT) {
+                executeInserts(tableName, columns, records);
+            } else {
+                executeUpserts(tableName, columns, records);
+            }
+            return;
+        }
 
-        int idx = 1;
-        for (String col : pkColumns) {
-            Object value = keyValues.get(col);
-            if (value == null) {
-                value = values.get(col);
+        List<String> pkColumns = pkColumns(tableName);
+        Set<Object> statementKeys = new HashSet<>();
+        int start = 0;
+        for (int i = 0; i < records.size(); i++) {
+            Object pk = pkColumns.isEmpty() ? null : records.get(i).getPrimaryKey(pkColumns);
+            boolean repeated = pk != null && !statementKeys.add(pk);
+            if (i - start == maxRows || repeated) {
+                executeRows(tableName, operation, columns, records.subList(start, i), maxRows);
+                start = i;
+                statementKeys.clear();
+                if (pk != null) {
+                    statementKeys.add(pk);
+                }
             }
-            ps.setObject(idx++, value);
         }
+        executeRows(tableName, operation, columns, records.subList(start, records.size()), maxRows);
     }
 
-    // Helper Methods
+    /**
+     * Write at most maxRows rows. A full chunk is one statement; a shorter one is
+     * split into power-of-two sized statements, so each column set only ever
+     * needs a handful of distinct statements in the cache.
+     */
+    private void executeRows(String tableName, CdcOperation operation, List<String> columns,
+                             List<ProcessedRecord> rows, int maxRows) throws SQLException {
+        List<String> pkColumns = operation == CdcOperation.UPSERT ? pkColumns(tableName) : Collections.emptyList();
+        StatementKey rowKey = new StatementKey(tableName, operation.name(), columns, pkColumns);
+
+        int offset = 0;
+        while (offset < rows.size()) {
+            int remaining = rows.size() - offset;
+            int count = remaining == maxRows ? maxRows : Integer.highestOneBit(remaining);
+            List<ProcessedRecord> statementRows = rows.subList(offset, offset + count);
+
+            StatementKey key = new StatementKey(tableName, operation.name(), columns, pkColumns, count);
+            PreparedStatement ps = statementCache().prepare(key, () -> operation == CdcOperation.INSERT
+                    ? dialect.buildInsertSql(tableName, columns, count)
+                    : dialect.buildUpsertSql(tableName, columns, pkColumns, count));
+            try {
+                BindingPlan plan = null;
+                int parameterIndex = 1;
+                for (ProcessedRecord record : statementRows) {
+                    plan = bindingPlans.get(plan, rowKey, columns, Collections.emptyList(), record);
+                    parameterIndex = plan.bind(ps, parameterIndex, record);
+                }
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                statementCache().evict(key);
+                throw e;
+            }
+            offset += count;
+        }
+    }
+
+    /**
+     * Whether a run is large enough for the dialect's bulk path (bulk.threshold).
+     */
+    private boolean useBulkLoader(String tableName, List<ProcessedRecord> records) {
+        int threshold = config.getBulkThreshold();
+        return bulkLoader != null && threshold > 0 && records.size() >= threshold
+                && !pkColumns(tableName).isEmpty();
+    }
+
+    private void executeBulkUpserts(String tableName, List<String> columns, List<ProcessedRecord> records)
+            throws SQLException {
+        List<String> pkColumns = pkColumns(tableName);
+        // A set-based upsert may touch each key only once; keep the last image of each key
+        records = RecordCompactor.compact(records, pkColumns);
+
+        StatementKey key = new StatementKey(tableName, "BULK_UPSERT", columns, pkColumns);
+        List<Object[]> rows = materialize(key, columns, Collections.emptyList(), records);
+        log.fine("Bulk upserting " + rows.size() + " rows into " + tableName);
+        bulkLoader.upsert(connection(), tableName, columns, pkColumns, rows);
+    }
+
+    private void executeBulkDeletes(String tableName, List<String> pkColumns, List<ProcessedRecord> records)
+            throws SQLException {
+        StatementKey key = new StatementKey(tableName, "BULK_DELETE", Collections.emptyList(), pkColumns);
+        List<Object[]> keys = materialize(key, Collections.emptyList(), pkColumns, records);
+        log.fine("Bulk deleting " + keys.size() + " rows from " + tableName);
+        bulkLoader.delete(connection(), tableName, pkColumns, keys);
+    }
+
+    private boolean useArrayBinding(String tableName) {
+        return config.isUnnestWriteMode() && dialect.supportsArrayBinding() && !pkColumns(tableName).isEmpty();
+    }
+
+    /**
+     * Upsert a run as one statement with one array parameter per column
+     * (write.mode=unnest). Falls back to batched upserts if the column types
+     * needed for the array casts are unknown.
+     */
+    private void executeArrayUpserts(String tableName, List<String> columns, List<ProcessedRecord> records)
+            throws SQLException {
+        List<String> columnTypes = columnTypes(tableName, columns);
+        if (columnTypes == null) {
+            executeUpserts(tableName, columns, records);
+            return;
+        }
+
+        List<String> pkColumns = pkColumns(tableName);
+        // One statement may touch each key only once; keep the last image of each key
+        records = RecordCompactor.compact(records, pkColumns);
 
-    private List<String> extractColumnNames(ProcessedRecord record) {
-        List<String> columns = new ArrayList<>();
+        StatementKey key = new StatementKey(tableName, "UNNEST_UPSERT", columns, pkColumns);
+        List<Object[]> rows = materialize(key, columns, Collections.emptyList(), records);
+        PreparedStatement ps = statementCache().prepare(key,
+                () -> dialect.buildArrayUpsertSql(tableName, columns, columnTypes, pkColumns));
+        try {
+            bindArrays(ps, rows, columns.size());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            statementCache().evict(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Delete a run as one statement matching the keys against array parameters.
+     *
+     * @return false if the PK column types are unknown and the run was not written
+     */
+    private boolean executeArrayDeletes(String tableName, List<String> pkColumns, List<ProcessedRecord> records)
+            throws SQLException {
+        List<String> pkTypes = columnTypes(tableName, pkColumns);
+        if (pkTypes == null) {
+            return false;
+        }
+
+        StatementKey key = new StatementKey(tableName, "UNNEST_DELETE", Collections.emptyList(), pkColumns);
+        List<Object[]> keys = materialize(key, Collections.emptyList(), pkColumns, records);
+        PreparedStatement ps = statementCache().prepare(key,
+                () -> dialect.buildArrayDeleteSql(tableName, pkColumns, pkTypes));
+        try {
+            bindArrays(ps, keys, pkColumns.size());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            statementCache().evict(key);
+            throw e;
+        }
+        return true;
+    }
 
-        Object value = record.getValue();
-        if (value instanceof Struct) {
-            Struct struct = (Struct) value;
-            for (Field field : struct.schema().fields()) {
-                columns.add(field.name());
+    private void bindArrays(PreparedStatement ps, List<Object[]> rows, int columnCount) throws SQLException {
+        Object[] values = new Object[rows.size()];
+        for (int column = 0; column < columnCount; column++) {
+            for (int row = 0; row < values.length; row++) {
+                values[row] = rows.get(row)[column];
             }
-        } else if (value instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, ?> map = (Map<String, ?>) value;
-            columns.addAll(map.keySet());
+            ps.setArray(column + 1, dialect.createArray(connection(), values));
+        }
+    }
+
+    /**
+     * Database type names of the given columns from the metadata cache, or null
+     * if the table or any of the columns is unknown.
+     */
+    private List<String> columnTypes(String tableName, List<String> columns) throws SQLException {
+        TableMetadata table = metadataCache.get(tableName);
+        if (table == null) {
+            table = metadataCache.load(connection(), dialect, tableName);
+        }
+        if (table == null) {
+            return null;
         }
 
-        return columns;
+        List<String> types = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            String type = table.getColumnType(column);
+            if (type == null) {
+                log.fine("Unknown type of column " + column + " in table " + tableName);
+                return null;
+            }
+            types.add(type);
+        }
+        return types;
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> extractValueMap(ProcessedRecord record) {
-        Object value = record.getValue();
+    /**
+     * Collect the bound values of each record, in parameter order.
+     */
+    private List<Object[]> materialize(StatementKey key, List<String> valueColumns, List<String> keyColumns,
+                                       List<ProcessedRecord> records) {
+        List<Object[]> rows = new ArrayList<>(records.size());
+        BindingPlan plan = null;
+        for (ProcessedRecord record : records) {
+            plan = bindingPlans.get(plan, key, valueColumns, keyColumns, record);
+            Object[] row = new Object[plan.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = plan.getParameter(i, record);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
 
-        if (value instanceof Struct) {
-            Struct struct = (Struct) value;
-            Map<String, Object> map = new LinkedHashMap<>();
-            for (Field field : struct.schema().fields()) {
-                map.put(field.name(), struct.get(field));
+    private void executeInserts(String tableName, List<String> columns, List<ProcessedRecord> records)
+            throws SQLException {
+        StatementKey key = new StatementKey(tableName, "INSERT", columns, Collections.emptyList());
+        PreparedStatement ps = statementCache().prepare(key, () -> dialect.buildInsertSql(tableName, columns));
+        try {
+            BindingPlan plan = null;
+            for (ProcessedRecord record : records) {
+                plan = bindingPlans.get(plan, key, columns, Collections.emptyList(), record);
+                plan.bind(ps, 1, record);
+                ps.addBatch();
             }
-            return map;
-        } else if (value instanceof Map) {
-            return new LinkedHashMap<>((Map<String, Object>) value);
+            ps.executeBatch();
+        } catch (SQLException e) {
+            statementCache().evict(key);
+            throw e;
         }
+    }
 
-        return Collections.emptyMap();
+    private void executeUpdates(String tableName, List<String> columns, List<ProcessedRecord> records)
+            throws SQLException {
+        List<String> pkColumns = pkColumns(tableName);
+
+        if (pkColumns.isEmpty()) {
+            log.warning("No primary key fields configured or discovered for " + tableName +
+                    ", falling back to upsert for UPDATE operations");
+            executeUpserts(tableName, columns, records);
+            return;
+        }
+
+        // SET clause binds the non-PK columns, WHERE clause the PK columns
+        List<String> nonPkColumns = new ArrayList<>(columns);
+        nonPkColumns.removeAll(pkColumns);
+
+        StatementKey key = new StatementKey(tableName, "UPDATE", columns, pkColumns);
+        PreparedStatement ps = statementCache().prepare(key,
+                () -> dialect.buildUpdateSql(tableName, columns, pkColumns));
+        try {
+            BindingPlan plan = null;
+            for (ProcessedRecord record : records) {
+                plan = bindingPlans.get(plan, key, nonPkColumns, pkColumns, record);
+                plan.bind(ps, 1, record);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            statementCache().evict(key);
+            throw e;
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> extractKeyMap(ProcessedRecord record) {
-        Object key = record.getKey();
+    private void executeUpserts(String tableName, List<String> columns, List<ProcessedRecord> records)
+            throws SQLException {
+        List<String> pkColumns = pkColumns(tableName);
 
-        if (key instanceof Struct) {
-            Struct struct = (Struct) key;
-            Map<String, Object> map = new LinkedHashMap<>();
-            for (Field field : struct.schema().fields()) {
-                map.put(field.name(), struct.get(field));
+        StatementKey key = new StatementKey(tableName, "UPSERT", columns, pkColumns);
+        PreparedStatement ps = statementCache().prepare(key,
+                () -> dialect.buildUpsertSql(tableName, columns, pkColumns));
+        try {
+            BindingPlan plan = null;
+            for (ProcessedRecord record : records) {
+                plan = bindingPlans.get(plan, key, columns, Collections.emptyList(), record);
+                plan.bind(ps, 1, record);
+                ps.addBatch();
             }
-            return map;
-        } else if (key instanceof Map) {
-            return new LinkedHashMap<>((Map<String, Object>) key);
+            ps.executeBatch();
+        } catch (SQLException e) {
+            statementCache().evict(key);
+            throw e;
+        }
+    }
+
+    private void executeDeletes(String tableName, List<ProcessedRecord> records)
+            throws SQLException {
+        List<String> pkColumns = pkColumns(tableName);
+        if (pkColumns.isEmpty()) {
+            log.warning("No primary key fields configured or discovered for " + tableName +
+                    ", cannot execute DELETE operations");
+            return;
+        }
+
+        if (useBulkLoader(tableName, records)) {
+            executeBulkDeletes(tableName, pkColumns, records);
+            return;
+        }
+
+        if (records.size() > 1 && useArrayBinding(tableName) && executeArrayDeletes(tableName, pkColumns, records)) {
+            return;
+        }
+
+        int maxKeys = Math.min(dialect.getMaxDeleteKeys(), dialect.getMaxBindParameters() / pkColumns.size());
+        if (records.size() > 1 && maxKeys > 1) {
+            executeSetDeletes(tableName, pkColumns, records, maxKeys);
+            return;
         }
 
-        return Collections.emptyMap();
+        StatementKey key = new StatementKey(tableName, "DELETE", Collections.emptyList(), pkColumns);
+        PreparedStatement ps = statementCache().prepare(key, () -> dialect.buildDeleteSql(tableName, pkColumns));
+        try {
+            BindingPlan plan = null;
+            for (ProcessedRecord record : records) {
+                plan = bindingPlans.get(plan, key, Collections.emptyList(), pkColumns, record);
+                plan.bind(ps, 1, record);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            statementCache().evict(key);
+            throw e;
+        }
     }
 
-    private void ensureTableExists(String tableName, ProcessedRecord sample) throws SQLException {
-        DatabaseMetaData meta = connection.getMetaData();
-        String normalizedTableName = dialect.normalizeIdentifierForMetadata(tableName);
-        try (ResultSet rs = meta.getTables(null, null, normalizedTableName, new String[]{"TABLE"})) {
-            if (!rs.next()) {
-                log.info("Auto-creating table: " + tableName);
-                createTable(tableName, sample);
+    /**
+     * Delete a run with statements matching up to maxKeys keys each
+     * (WHERE pk IN (...)). Full chunks share one statement and are sent as one
+     * JDBC batch; the remainder is split into power-of-two sized statements.
+     */
+    private void executeSetDeletes(String tableName, List<String> pkColumns, List<ProcessedRecord> records,
+                                   int maxKeys) throws SQLException {
+        StatementKey rowKey = new StatementKey(tableName, "DELETE", Collections.emptyList(), pkColumns);
+        int fullChunks = records.size() / maxKeys;
+        int offset = 0;
+
+        if (fullChunks > 0) {
+            StatementKey key = new StatementKey(tableName, "DELETE", Collections.emptyList(), pkColumns, maxKeys);
+            PreparedStatement ps = statementCache().prepare(key,
+                    () -> dialect.buildDeleteSql(tableName, pkColumns, maxKeys));
+            try {
+                for (int chunk = 0; chunk < fullChunks; chunk++) {
+                    bindKeys(ps, rowKey, pkColumns, records.subList(offset, offset + maxKeys));
+                    ps.addBatch();
+                    offset += maxKeys;
+                }
+                ps.executeBatch();
+            } catch (SQLException e) {
+                statementCache().evict(key);
+                throw e;
             }
         }
+
+        while (offset < records.size()) {
+            int count = Integer.highestOneBit(records.size() - offset);
+            StatementKey key = new StatementKey(tableName, "DELETE", Collections.emptyList(), pkColumns, count);
+            PreparedStatement ps = statementCache().prepare(key,
+                    () -> dialect.buildDeleteSql(tableName, pkColumns, count));
+            try {
+                bindKeys(ps, rowKey, pkColumns, records.subList(offset, offset + count));
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                statementCache().evict(key);
+                throw e;
+            }
+            offset += count;
+        }
+    }
+
+    private void bindKeys(PreparedStatement ps, StatementKey rowKey, List<String> pkColumns,
+                          List<ProcessedRecord> records) throws SQLException {
+        BindingPlan plan = null;
+        int parameterIndex = 1;
+        for (ProcessedRecord record : records) {
+            plan = bindingPlans.get(plan, rowKey, Collections.emptyList(), pkColumns, record);
+            parameterIndex = plan.bind(ps, parameterIndex, record);
+        }
     }
 
     private void createTable(String tableName, ProcessedRecord sample) throws SQLException {
-        List<String> pkColumns = config.getPkFields();
+        List<String> pkColumns = config.getPkFields(tableName);
         String ddl = dialect.buildCreateTableSql(tableName, sample, pkColumns);
         log.info("Creating table with DDL: " + ddl);
-        try (Statement stmt = connection.createStatement()) {
+        try (Statement stmt = connection().createStatement()) {
             stmt.execute(ddl);
         }
+        connectionPool.invalidateStatements(tableName);
     }
 
-    private void evolveTable(String tableName, ProcessedRecord sample) throws SQLException {
-        DatabaseMetaData meta = connection.getMetaData();
-        String normalizedTableName = dialect.normalizeIdentifierForMetadata(tableName);
-        Set<String> existingColumns = new HashSet<>();
-        try (ResultSet rs = meta.getColumns(null, null, normalizedTableName, null)) {
-            while (rs.next()) {
-                existingColumns.add(rs.getString("COLUMN_NAME").toUpperCase());
-            }
-        }
-
-        List<String> recordColumns = extractColumnNames(sample);
+    /**
+     * Add the record columns missing from the table.
+     *
+     * @return true if the table was altered
+     */
+    private boolean evolveTable(String tableName, TableMetadata table, List<String> recordColumns,
+                                ProcessedRecord sample) throws SQLException {
         List<String> missingColumns = new ArrayList<>();
         for (String col : recordColumns) {
-            if (!existingColumns.contains(col.toUpperCase())) {
+            if (!table.hasColumn(col)) {
                 missingColumns.add(col);
             }
         }
 
-        if (!missingColumns.isEmpty()) {
-            log.info("Evolving table " + tableName + " with missing columns: " + missingColumns);
-            String ddl = dialect.buildAlterTableSql(tableName, missingColumns, sample);
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute(ddl);
-            }
+        if (missingColumns.isEmpty()) {
+            return false;
         }
+
+        log.info("Evolving table " + tableName + " with missing columns: " + missingColumns);
+        String ddl = dialect.buildAlterTableSql(tableName, missingColumns, sample);
+        try (Statement stmt = connection().createStatement()) {
+            stmt.execute(ddl);
+        }
+        connectionPool.invalidateStatements(tableName);
+        return true;
     }
 
     @Override
     public void close() throws SQLException {
-        for (PreparedStatement ps : statementCache.values()) {
-            ps.close();
-        }
-        statementCache.clear();
+        // Cached statements belong to the pooled connections and are closed with them
+        rollback();
     }
 
     /**
@@ -335,9 +875,11 @@ public class JdbcWriter implements AutoCloseable {
         private final Schema keySchema;
         private final Schema valueSchema;
         private final String isoTimestamp;
+        private final SinkRecord sourceRecord;
 
         public ProcessedRecord(String targetTable, CdcOperation operation, Object key, Object value,
-                               Schema keySchema, Schema valueSchema, String isoTimestamp) {
+                               Schema keySchema, Schema valueSchema, String isoTimestamp,
+                               SinkRecord sourceRecord) {
             this.targetTable = targetTable;
             this.operation = operation;
             this.key = key;
@@ -345,6 +887,7 @@ public class JdbcWriter implements AutoCloseable {
             this.keySchema = keySchema;
             this.valueSchema = valueSchema;
             this.isoTimestamp = isoTimestamp;
+            this.sourceRecord = sourceRecord;
         }
 
         public String getTargetTable() {
@@ -374,5 +917,52 @@ public class JdbcWriter implements AutoCloseable {
         public String getIsoTimestamp() {
             return isoTimestamp;
         }
+
+        /**
+         * The Kafka record this was processed from.
+         */
+        public SinkRecord getSourceRecord() {
+            return sourceRecord;
+        }
+
+        /**
+         * Get the primary key values of this record, taken from the key and
+         * falling back to the value for columns the key does not carry.
+         *
+         * @return a key suitable for equality checks, or null if any PK column is missing
+         */
+        public Object getPrimaryKey(List<String> pkColumns) {
+            if (pkColumns.isEmpty()) {
+                return null;
+            }
+            if (pkColumns.size() == 1) {
+                return getPrimaryKeyValue(pkColumns.get(0));
+            }
+            List<Object> values = new ArrayList<>(pkColumns.size());
+            for (String col : pkColumns) {
+                Object value = getPrimaryKeyValue(col);
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+            }
+            return values;
+        }
+
+        private Object getPrimaryKeyValue(String column) {
+            Object value = fieldValue(key, column);
+            return value != null ? value : fieldValue(this.value, column);
+        }
+
+        private static Object fieldValue(Object container, String column) {
+            if (container instanceof Struct) {
+                Struct struct = (Struct) container;
+                Field field = struct.schema().field(column);
+                return field != null ? struct.get(field) : null;
+            } else if (container instanceof Map) {
+                return ((Map<?, ?>) container).get(column);
+            }
+            return null;
+        }
     }
 }
@@ -0,0 +1,50 @@
+package com.example.kafka.connect.iidr.writer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A JDBC connection owned by a {@link ConnectionPool}, with its prepared
+ * statement cache and the bookkeeping the pool needs for lifetime and idle eviction.
+ */
+public class PooledConnection {
+
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final long createdAtMs;
+    private long lastUsedAtMs;
+
+    PooledConnection(Connection connection, ConnectionPool connectionPool, int statementCacheSize) {
+        this.connection = connection;
+        this.statementCache = new StatementCache(connection, connectionPool, statementCacheSize);
+        this.createdAtMs = System.currentTimeMillis();
+        this.lastUsedAtMs = createdAtMs;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    long getCreatedAtMs() {
+        return createdAtMs;
+    }
+
+    long getLastUsedAtMs() {
+        return lastUsedAtMs;
+    }
+
+    void touch() {
+        this.lastUsedAtMs = System.currentTimeMillis();
+    }
+
+    void close() throws SQLException {
+        statementCache.closeAll();
+        if (!connection.isClosed()) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.kafka.connect.iidr.writer;
+
+import com.example.kafka.connect.iidr.writer.CorruptEventWriter.CorruptRecord;
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates processed records across put() calls until they are flushed.
+ *
+ * Records are kept in arrival order. A flush takes a chunk from the front of
+ * the buffer with {@link #peek(int)} and removes it with {@link #commit(Chunk)}
+ * only once the chunk is durably written, so a failed flush leaves the buffer
+ * untouched. The offsets of committed chunks are tracked per partition and
+ * reported by {@link #getDurableOffsets()}.
+ *
+ * Records skipped by the table filter are buffered as offset-only entries so
+ * their offsets are not committed ahead of earlier records still pending.
+ */
+public class RecordBuffer {
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final Map<TopicPartition, Long> durableOffsets = new HashMap<>();
+    private int pendingRecords;
+    private long nextSequence;
+
+    /**
+     * Add a valid record.
+     */
+    public void add(SinkRecord source, ProcessedRecord processed) {
+        append(new Entry(source, processed, null));
+    }
+
+    /**
+     * Add a corrupt record, which is flushed together with the valid records around it.
+     */
+    public void addCorrupt(CorruptRecord corrupt) {
+        append(new Entry(corrupt.getRecord(), null, corrupt));
+    }
+
+    /**
+     * Add a record that needs no writing but whose offset must still be committed.
+     */
+    public void addSkipped(SinkRecord source) {
+        if (entries.isEmpty()) {
+            durableOffsets.put(topicPartition(source), source.kafkaOffset() + 1);
+            return;
+        }
+        Entry entry = new Entry(source, null, null);
+        entry.sequence = nextSequence++;
+        entries.addLast(entry);
+    }
+
+    private void append(Entry entry) {
+        entry.sequence = nextSequence++;
+        entries.addLast(entry);
+        pendingRecords++;
+    }
+
+    /**
+     * Number of buffered records that need writing.
+     */
+    public int size() {
+        return pendingRecords;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Whether the oldest pending record has been buffered for at least lingerMs.
+     */
+    public boolean isLingerExpired(long nowMs, long lingerMs) {
+        for (Entry entry : entries) {
+            if (entry.isPending()) {
+                return nowMs - entry.bufferedAtMs >= lingerMs;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build a chunk of up to maxRecords pending records from the front of the buffer,
+     * without removing them.
+     */
+    public Chunk peek(int maxRecords) {
+        Map<String, List<ProcessedRecord>> recordsByTable = new LinkedHashMap<>();
+        List<CorruptRecord> corruptRecords = new ArrayList<>();
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        int records = 0;
+        int entryCount = 0;
+
+        for (Entry entry : entries) {
+            if (entry.isPending()) {
+                if (records == maxRecords) {
+                    break;
+                }
+                records++;
+                if (entry.processed != null) {
+                    recordsByTable
+                            .computeIfAbsent(entry.processed.getTargetTable(), k -> new ArrayList<>())
+                            .add(entry.processed);
+                } else {
+                    corruptRecords.add(entry.corrupt);
+                }
+            }
+            offsets.put(entry.topicPartition, entry.offset + 1);
+            entryCount++;
+        }
+
+        return new Chunk(recordsByTable, corruptRecords, offsets, entryCount, records);
+    }
+
+    /**
+     * Remove a chunk previously returned by {@link #peek(int)} after it has been written.
+     */
+    public void commit(Chunk chunk) {
+        for (int i = 0; i < chunk.entryCount; i++) {
+            entries.removeFirst();
+        }
+        pendingRecords -= chunk.recordCount;
+        durableOffsets.putAll(chunk.offsets);
+
+        // Skipped records at the front are now durable as well
+        while (!entries.isEmpty() && !entries.peekFirst().isPending()) {
+            Entry skipped = entries.removeFirst();
+            durableOffsets.put(skipped.topicPartition, skipped.offset + 1);
+        }
+    }
+
+    /**
+     * Offsets (next offset to consume) of everything written so far, per partition.
+     */
+    public Map<TopicPartition, OffsetAndMetadata> getDurableOffsets() {
+        Map<TopicPartition, OffsetAndMetadata> result = new HashMap<>();
+        for (Map.Entry<TopicPartition, Long> entry : durableOffsets.entrySet()) {
+            result.put(entry.getKey(), new OffsetAndMetadata(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Drop buffered records and tracked offsets of partitions no longer assigned.
+     */
+    public void removePartitions(Collection<TopicPartition> partitions) {
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (partitions.contains(entry.topicPartition)) {
+                if (entry.isPending()) {
+                    pendingRecords--;
+                }
+                it.remove();
+            }
+        }
+        for (TopicPartition partition : partitions) {
+            durableOffsets.remove(partition);
+        }
+    }
+
+    /**
+     * Position of the next record to be added, for {@link #discardFrom(long)}.
+     */
+    public long mark() {
+        return nextSequence;
+    }
+
+    /**
+     * Discard records added since the given {@link #mark()}, e.g. when the
+     * framework is going to redeliver the put() that added them.
+     */
+    public void discardFrom(long mark) {
+        while (!entries.isEmpty() && entries.peekLast().sequence >= mark) {
+            if (entries.removeLast().isPending()) {
+                pendingRecords--;
+            }
+        }
+    }
+
+    /**
+     * Discard all buffered records, e.g. after a failed flush when the
+     * framework is going to redeliver them.
+     */
+    public void clear() {
+        entries.clear();
+        pendingRecords = 0;
+    }
+
+    private static TopicPartition topicPartition(SinkRecord record) {
+        return new TopicPartition(record.topic(), record.kafkaPartition());
+    }
+
+    private static final class Entry {
+        private final TopicPartition topicPartition;
+        private final long offset;
+        private final ProcessedRecord processed;
+        private final CorruptRecord corrupt;
+        private final long bufferedAtMs;
+        private long sequence;
+
+        Entry(SinkRecord source, ProcessedRecord processed, CorruptRecord corrupt) {
+            this.topicPartition = topicPartition(source);
+            this.offset = source.kafkaOffset();
+            this.processed = processed;
+            this.corrupt = corrupt;
+            this.bufferedAtMs = System.currentTimeMillis();
+        }
+
+        boolean isPending() {
+            return processed != null || corrupt != null;
+        }
+    }
+
+    /**
+     * A slice from the front of the buffer to be written in one transaction.
+     */
+    public static class Chunk {
+        private final Map<String, List<ProcessedRecord>> recordsByTable;
+        private final List<CorruptRecord> corruptRecords;
+        private final Map<TopicPartition, Long> offsets;
+        private final int entryCount;
+        private final int recordCount;
+
+        Chunk(Map<String, List<ProcessedRecord>> recordsByTable, List<CorruptRecord> corruptRecords,
+              Map<TopicPartition, Long> offsets, int entryCount, int recordCount) {
+            this.recordsByTable = recordsByTable;
+            this.corruptRecords = corruptRecords;
+            this.offsets = offsets;
+            this.entryCount = entryCount;
+            this.recordCount = recordCount;
+        }
+
+        public Map<String, List<ProcessedRecord>> getRecordsByTable() {
+            return recordsByTable;
+        }
+
+        public List<CorruptRecord> getCorruptRecords() {
+            return corruptRecords;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+    }
+}
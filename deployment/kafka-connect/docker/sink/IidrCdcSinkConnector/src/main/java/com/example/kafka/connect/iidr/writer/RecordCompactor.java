@@ -0,0 +1,88 @@
+package com.example.kafka.connect.iidr.writer;
+
+import com.example.kafka.connect.iidr.operation.CdcOperation;
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Collapses a table's batch to the final state of each primary key.
+ *
+ * IIDR UPSERTs carry full row images, so only the last change to a key matters:
+ * - UP, UP, UP     -> last UP
+ * - PT, DL         -> DL
+ * - DL, PT         -> DL, PT (the delete is kept so the re-inserted row starts clean)
+ *
+ * The result contains all deletes first, followed by the surviving row images,
+ * each in the order their key was first seen. Since every key appears at most
+ * once per operation type, this ordering preserves per-key semantics.
+ *
+ * Batches that cannot be keyed (no PK configured, a record missing a PK value,
+ * or plain INSERT/UPDATE operations) are returned unchanged.
+ */
+public final class RecordCompactor {
+
+    private static final Logger log = Logger.getLogger(RecordCompactor.class.getName());
+
+    private RecordCompactor() {
+    }
+
+    /**
+     * Compact a single table's records by primary key.
+     */
+    public static List<ProcessedRecord> compact(List<ProcessedRecord> records, List<String> pkColumns) {
+        if (records.size() < 2 || pkColumns.isEmpty()) {
+            return records;
+        }
+
+        Map<Object, KeyState> states = new LinkedHashMap<>();
+        for (ProcessedRecord record : records) {
+            CdcOperation operation = record.getOperation();
+            if (operation != CdcOperation.UPSERT && operation != CdcOperation.DELETE) {
+                return records;
+            }
+
+            Object key = record.getPrimaryKey(pkColumns);
+            if (key == null) {
+                return records;
+            }
+
+            KeyState state = states.computeIfAbsent(key, k -> new KeyState());
+            if (operation == CdcOperation.DELETE) {
+                state.lastDelete = record;
+            }
+            state.last = record;
+        }
+
+        if (states.size() == records.size()) {
+            return records;
+        }
+
+        List<ProcessedRecord> deletes = new ArrayList<>();
+        List<ProcessedRecord> upserts = new ArrayList<>();
+        for (KeyState state : states.values()) {
+            if (state.lastDelete != null) {
+                deletes.add(state.lastDelete);
+            }
+            if (state.last.getOperation() != CdcOperation.DELETE) {
+                upserts.add(state.last);
+            }
+        }
+
+        List<ProcessedRecord> compacted = new ArrayList<>(deletes.size() + upserts.size());
+        compacted.addAll(deletes);
+        compacted.addAll(upserts);
+
+        log.fine("Compacted " + records.size() + " records to " + compacted.size());
+        return compacted;
+    }
+
+    private static final class KeyState {
+        private ProcessedRecord last;
+        private ProcessedRecord lastDelete;
+    }
+}
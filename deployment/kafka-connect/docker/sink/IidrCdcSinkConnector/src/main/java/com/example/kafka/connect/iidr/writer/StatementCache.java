@@ -0,0 +1,155 @@
+package com.example.kafka.connect.iidr.writer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Bounded LRU cache of prepared statements for one connection.
+ *
+ * Statements are keyed by table, operation and column signature, so the SQL is
+ * only built and parsed by the server the first time a shape is seen. Evicted
+ * statements are closed. Each entry remembers the table's DDL generation from
+ * the {@link ConnectionPool}; after auto.create/auto.evolve changes a table, its
+ * statements are re-prepared on every connection on next use.
+ *
+ * Not thread-safe: a connection, and therefore its cache, is used by one
+ * borrower at a time.
+ */
+public class StatementCache {
+
+    private static final Logger log = Logger.getLogger(StatementCache.class.getName());
+
+    private final Connection connection;
+    private final ConnectionPool connectionPool;
+    private final LinkedHashMap<StatementKey, CachedStatement> statements;
+
+    StatementCache(Connection connection, ConnectionPool connectionPool, int maxSize) {
+        this.connection = connection;
+        this.connectionPool = connectionPool;
+        this.statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                if (size() > maxSize) {
+                    closeQuietly(eldest.getValue().statement);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the cached statement for a key, preparing it with the supplied SQL if
+     * it is missing or its table has changed since it was prepared.
+     */
+    public PreparedStatement prepare(StatementKey key, Supplier<String> sqlSupplier) throws SQLException {
+        int generation = connectionPool.getTableGeneration(key.tableName);
+        CachedStatement cached = statements.get(key);
+        if (cached != null) {
+            if (cached.generation == generation) {
+                return cached.statement;
+            }
+            statements.remove(key);
+            closeQuietly(cached.statement);
+        }
+
+        String sql = sqlSupplier.get();
+        log.fine(key.operation + (key.rows > 1 ? " x" + key.rows : "") + " SQL: " + sql);
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statements.put(key, new CachedStatement(statement, generation));
+        return statement;
+    }
+
+    /**
+     * Drop and close a statement, e.g. after it failed and may be left in an unusable state.
+     */
+    public void evict(StatementKey key) {
+        CachedStatement cached = statements.remove(key);
+        if (cached != null) {
+            closeQuietly(cached.statement);
+        }
+    }
+
+    void closeAll() {
+        List<CachedStatement> all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement cached : all) {
+            closeQuietly(cached.statement);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.fine("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private final int generation;
+
+        CachedStatement(PreparedStatement statement, int generation) {
+            this.statement = statement;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Identifies the shape of a statement: table, operation, the columns it binds
+     * and, for multi-row statements, the number of rows.
+     */
+    public static final class StatementKey {
+        private final String tableName;
+        private final String operation;
+        private final List<String> columns;
+        private final List<String> pkColumns;
+        private final int rows;
+        private final int hash;
+
+        public StatementKey(String tableName, String operation, List<String> columns, List<String> pkColumns) {
+            this(tableName, operation, columns, pkColumns, 1);
+        }
+
+        public StatementKey(String tableName, String operation, List<String> columns, List<String> pkColumns,
+                            int rows) {
+            this.tableName = tableName;
+            this.operation = operation;
+            this.columns = columns;
+            this.pkColumns = pkColumns;
+            this.rows = rows;
+            this.hash = Objects.hash(tableName, operation, columns, pkColumns, rows);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey) o;
+            return hash == other.hash
+                    && rows == other.rows
+                    && tableName.equals(other.tableName)
+                    && operation.equals(other.operation)
+                    && columns.equals(other.columns)
+                    && pkColumns.equals(other.pkColumns);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.kafka.connect.iidr.writer;
+
+import com.example.kafka.connect.iidr.dialect.Dialect;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Per-task cache of target table metadata for auto.create / auto.evolve and pk.discovery.
+ *
+ * Once a table's columns have been read from {@link DatabaseMetaData}, every
+ * column signature checked against them is remembered, so a batch whose columns
+ * were already verified needs no catalog query at all. The database is only
+ * consulted for an unseen table or column signature, or after
+ * {@link #invalidate(String)} when a failed write suggests the cache is stale.
+ *
+ * Shared by all writer lanes, so it is thread-safe.
+ */
+public class TableMetadataCache {
+
+    private static final Logger log = Logger.getLogger(TableMetadataCache.class.getName());
+
+    private final Map<String, TableMetadata> tables = new ConcurrentHashMap<>();
+    private final boolean discoverPrimaryKeys;
+
+    /**
+     * @param discoverPrimaryKeys whether loading a table also reads its primary key (pk.discovery)
+     */
+    public TableMetadataCache(boolean discoverPrimaryKeys) {
+        this.discoverPrimaryKeys = discoverPrimaryKeys;
+    }
+
+    /**
+     * Cached metadata of a table, or null if it has not been loaded.
+     */
+    public TableMetadata get(String tableName) {
+        return tables.get(tableName);
+    }
+
+    /**
+     * Read a table's columns from the database and cache them.
+     *
+     * @return the table's metadata, or null if the table does not exist
+     */
+    public TableMetadata load(Connection connection, Dialect dialect, String tableName) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        String normalizedTableName = dialect.normalizeIdentifierForMetadata(tableName);
+        Map<String, String> columnTypes = new LinkedHashMap<>();
+        try (ResultSet rs = meta.getColumns(null, null, normalizedTableName, null)) {
+            while (rs.next()) {
+                columnTypes.put(rs.getString("COLUMN_NAME").toUpperCase(), rs.getString("TYPE_NAME"));
+            }
+        }
+
+        if (columnTypes.isEmpty()) {
+            tables.remove(tableName);
+            return null;
+        }
+
+        List<String> primaryKey = discoverPrimaryKeys
+                ? loadPrimaryKey(meta, normalizedTableName) : Collections.emptyList();
+
+        log.fine("Loaded metadata for table " + tableName + ": " + columnTypes.keySet()
+                + (primaryKey.isEmpty() ? "" : ", primary key " + primaryKey));
+        TableMetadata metadata = new TableMetadata(columnTypes, primaryKey);
+        tables.put(tableName, metadata);
+        return metadata;
+    }
+
+    private List<String> loadPrimaryKey(DatabaseMetaData meta, String normalizedTableName) throws SQLException {
+        // Rows come ordered by column name; KEY_SEQ gives the key order
+        Map<Integer, String> columns = new TreeMap<>();
+        try (ResultSet rs = meta.getPrimaryKeys(null, null, normalizedTableName)) {
+            while (rs.next()) {
+                columns.put(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(columns.values()));
+    }
+
+    /**
+     * Forget a table, e.g. after DDL or a failed write; it is reloaded on next use.
+     */
+    public void invalidate(String tableName) {
+        if (tables.remove(tableName) != null) {
+            log.fine("Invalidated metadata for table " + tableName);
+        }
+    }
+
+    /**
+     * Columns of one table as last read from the database.
+     */
+    public static class TableMetadata {
+        private final Map<String, String> columnTypes;
+        private final List<String> primaryKey;
+        private final Set<ColumnSignature> verifiedSignatures = ConcurrentHashMap.newKeySet();
+
+        TableMetadata(Map<String, String> columnTypes, List<String> primaryKey) {
+            this.columnTypes = Collections.unmodifiableMap(columnTypes);
+            this.primaryKey = primaryKey;
+        }
+
+        public boolean hasColumn(String column) {
+            return columnTypes.containsKey(column.toUpperCase());
+        }
+
+        /**
+         * Database type name of a column (DatabaseMetaData TYPE_NAME), or null if unknown.
+         */
+        public String getColumnType(String column) {
+            return columnTypes.get(column.toUpperCase());
+        }
+
+        /**
+         * Primary key columns as named in the catalog, in key order; empty if the
+         * table has none or pk.discovery is disabled.
+         */
+        public List<String> getPrimaryKey() {
+            return primaryKey;
+        }
+
+        /**
+         * Whether every column of this signature is known to exist in the table.
+         */
+        public boolean isVerified(ColumnSignature signature) {
+            return verifiedSignatures.contains(signature);
+        }
+
+        public void markVerified(ColumnSignature signature) {
+            verifiedSignatures.add(signature);
+        }
+    }
+}
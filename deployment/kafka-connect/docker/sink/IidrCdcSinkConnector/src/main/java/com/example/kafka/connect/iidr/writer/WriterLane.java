@@ -0,0 +1,117 @@
+package com.example.kafka.connect.iidr.writer;
+
+import com.example.kafka.connect.iidr.IidrCdcSinkConfig;
+import com.example.kafka.connect.iidr.dialect.Dialect;
+import com.example.kafka.connect.iidr.writer.CorruptEventWriter.CorruptRecord;
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A single writer lane: a JdbcWriter with its own pooled connection per transaction.
+ *
+ * A lane is only ever used by one thread at a time, so the writer needs no
+ * synchronization.
+ */
+public class WriterLane implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(WriterLane.class.getName());
+
+    private final int id;
+    private final JdbcWriter jdbcWriter;
+
+    public WriterLane(int id, ConnectionPool connectionPool, TableMetadataCache metadataCache,
+                      IidrCdcSinkConfig config, Dialect dialect) {
+        this.id = id;
+        this.jdbcWriter = new JdbcWriter(connectionPool, metadataCache, config, dialect);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Write the given table batches one after another in this lane's transaction.
+     *
+     * @return records rejected by the database, if batch bisection is enabled
+     */
+    public List<CorruptRecord> write(List<TableBatch> batches) throws SQLException {
+        List<CorruptRecord> rejected = new ArrayList<>();
+        for (TableBatch batch : batches) {
+            if (batch.isSchemaEnsured()) {
+                rejected.addAll(jdbcWriter.apply(batch.getTableName(), batch.getRecords()));
+            } else {
+                rejected.addAll(jdbcWriter.write(batch.getTableName(), batch.getRecords()));
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Insert corrupt events in this lane's transaction.
+     */
+    public void writeCorrupt(CorruptEventWriter corruptEventWriter, List<CorruptRecord> records)
+            throws SQLException {
+        jdbcWriter.writeCorrupt(corruptEventWriter, records);
+    }
+
+    /**
+     * Run auto.create / auto.evolve for a table in this lane's transaction.
+     *
+     * @return whether any DDL was executed
+     */
+    public boolean ensureSchema(String tableName, List<ProcessedRecord> records) throws SQLException {
+        return jdbcWriter.ensureSchema(tableName, records);
+    }
+
+    /**
+     * Primary key columns of a table, discovering them in this lane's transaction if needed.
+     */
+    public List<String> resolvePrimaryKey(String tableName, List<ProcessedRecord> records) throws SQLException {
+        return jdbcWriter.resolvePrimaryKey(tableName, records);
+    }
+
+    public void commit() throws SQLException {
+        jdbcWriter.commit();
+    }
+
+    public void rollback() {
+        log.fine("Rolling back writer lane " + id);
+        jdbcWriter.rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        jdbcWriter.close();
+    }
+
+    /**
+     * Records of one table to be written by a lane.
+     */
+    public static class TableBatch {
+        private final String tableName;
+        private final List<ProcessedRecord> records;
+        private final boolean schemaEnsured;
+
+        public TableBatch(String tableName, List<ProcessedRecord> records, boolean schemaEnsured) {
+            this.tableName = tableName;
+            this.records = records;
+            this.schemaEnsured = schemaEnsured;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public List<ProcessedRecord> getRecords() {
+            return records;
+        }
+
+        public boolean isSchemaEnsured() {
+            return schemaEnsured;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.kafka.connect.iidr.writer;
+
+import com.example.kafka.connect.iidr.IidrCdcSinkConfig;
+import com.example.kafka.connect.iidr.dialect.Dialect;
+import com.example.kafka.connect.iidr.writer.CorruptEventWriter.CorruptRecord;
+import com.example.kafka.connect.iidr.writer.JdbcWriter.ProcessedRecord;
+import com.example.kafka.connect.iidr.writer.WriterLane.TableBatch;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Distributes a batch across parallel writer lanes.
+ * Lanes borrow their connections from the task's {@link ConnectionPool}.
+ *
+ * Each table is pinned to a lane the first time it is seen (round-robin), so
+ * all of a table's records are written in order by the same connection. Lanes
+ * write concurrently; {@link #commit()} is only called once every lane has
+ * finished writing, and the task returns from put() (allowing the framework to
+ * commit offsets) only after every lane has committed.
+ *
+ * Tables listed in writer.sharded.tables are not pinned: their batch is split
+ * across all lanes by a hash of the primary key, so changes to one key stay in
+ * order on one lane while a hot table is written over several connections.
+ * Their DDL is run on the first lane, and committed before the shards start if
+ * any was executed.
+ *
+ * All lanes share one {@link TableMetadataCache}, so a table's schema is only
+ * read from the database once per task.
+ *
+ * With a single lane, writes run on the calling thread.
+ */
+public class WriterPool implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(WriterPool.class.getName());
+
+    private final List<WriterLane> lanes;
+    private final Dialect dialect;
+    private final Set<String> shardedTables;
+    private final ExecutorService executor;
+    private final Map<String, Integer> laneAssignments = new HashMap<>();
+    private int nextLane;
+
+    public WriterPool(IidrCdcSinkConfig config, ConnectionPool connectionPool, Dialect dialect) {
+        int laneCount = config.getWriterLanes();
+        this.lanes = new ArrayList<>(laneCount);
+        this.dialect = dialect;
+        this.shardedTables = config.getWriterShardedTables();
+
+        TableMetadataCache metadataCache = new TableMetadataCache(config.isPkDiscovery());
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new WriterLane(i, connectionPool, metadataCache, config, dialect));
+        }
+
+        if (laneCount > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(laneCount, runnable -> {
+                Thread thread = new Thread(runnable, "iidr-writer-lane-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+
+        log.info("WriterPool started with " + laneCount + " lane(s)");
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * Write records grouped by table, running each lane's tables concurrently.
+     * On failure the caller must {@link #rollback()}; the first error is rethrown.
+     *
+     * @return records rejected by the database, if batch bisection is enabled
+     */
+    public List<CorruptRecord> write(Map<String, List<ProcessedRecord>> recordsByTable) throws SQLException {
+        if (recordsByTable.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (executor == null) {
+            List<TableBatch> batches = new ArrayList<>(recordsByTable.size());
+            for (Map.Entry<String, List<ProcessedRecord>> entry : recordsByTable.entrySet()) {
+                batches.add(new TableBatch(entry.getKey(), entry.getValue(), false));
+            }
+            return lanes.get(0).write(batches);
+        }
+
+        Map<WriterLane, List<TableBatch>> work = new LinkedHashMap<>();
+        boolean executedDdl = false;
+        for (Map.Entry<String, List<ProcessedRecord>> entry : recordsByTable.entrySet()) {
+            String tableName = entry.getKey();
+            List<ProcessedRecord> records = entry.getValue();
+
+            List<List<ProcessedRecord>> shards = shardedTables.contains(tableName)
+                    ? shard(lanes.get(0).resolvePrimaryKey(tableName, records), records) : null;
+            if (shards == null) {
+                work.computeIfAbsent(laneFor(tableName), l -> new ArrayList<>())
+                        .add(new TableBatch(tableName, records, false));
+                continue;
+            }
+
+            // Shards write concurrently, so DDL must be visible to every lane first
+            executedDdl |= lanes.get(0).ensureSchema(tableName, records);
+            for (int i = 0; i < shards.size(); i++) {
+                if (!shards.get(i).isEmpty()) {
+                    work.computeIfAbsent(lanes.get(i), l -> new ArrayList<>())
+                            .add(new TableBatch(tableName, shards.get(i), true));
+                }
+            }
+        }
+        if (executedDdl) {
+            lanes.get(0).commit();
+        }
+
+        List<Future<List<CorruptRecord>>> futures = new ArrayList<>(work.size());
+        for (Map.Entry<WriterLane, List<TableBatch>> entry : work.entrySet()) {
+            WriterLane lane = entry.getKey();
+            List<TableBatch> batches = entry.getValue();
+            futures.add(executor.submit(() -> lane.write(batches)));
+        }
+
+        return awaitAll(futures);
+    }
+
+    /**
+     * Insert corrupt events in the first lane's transaction, so they are only
+     * committed by {@link #commit()} together with the data.
+     */
+    public void writeCorrupt(CorruptEventWriter corruptEventWriter, List<CorruptRecord> records)
+            throws SQLException {
+        lanes.get(0).writeCorrupt(corruptEventWriter, records);
+    }
+
+    /**
+     * Split a table's records into one sub-batch per lane by primary key hash,
+     * preserving arrival order within each sub-batch.
+     *
+     * @return the shards, or null if the records cannot be keyed
+     */
+    private List<List<ProcessedRecord>> shard(List<String> pkColumns, List<ProcessedRecord> records) {
+        if (pkColumns.isEmpty()) {
+            return null;
+        }
+
+        List<List<ProcessedRecord>> shards = new ArrayList<>(lanes.size());
+        for (int i = 0; i < lanes.size(); i++) {
+            shards.add(new ArrayList<>(records.size() / lanes.size() + 1));
+        }
+        for (ProcessedRecord record : records) {
+            Object key = record.getPrimaryKey(pkColumns);
+            if (key == null) {
+                log.fine("Record without primary key value, writing table " +
+                        record.getTargetTable() + " on a single lane");
+                return null;
+            }
+            int hash = key.hashCode();
+            hash ^= (hash >>> 16);
+            shards.get(Math.floorMod(hash, lanes.size())).add(record);
+        }
+        return shards;
+    }
+
+    private WriterLane laneFor(String tableName) {
+        Integer index = laneAssignments.get(tableName);
+        if (index == null) {
+            index = nextLane;
+            nextLane = (nextLane + 1) % lanes.size();
+            laneAssignments.put(tableName, index);
+        }
+        return lanes.get(index);
+    }
+
+    /**
+     * Wait for every lane to finish, even after one has failed, so that no lane
+     * is still writing when the caller rolls back.
+     */
+    private List<CorruptRecord> awaitAll(List<Future<List<CorruptRecord>>> futures) throws SQLException {
+        List<CorruptRecord> rejected = new ArrayList<>();
+        Throwable failure = null;
+        for (Future<List<CorruptRecord>> future : futures) {
+            try {
+                rejected.addAll(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure == null) {
+            return rejected;
+        }
+        if (failure instanceof SQLException) {
+            throw (SQLException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw new SQLException("Writer lane failed: " + failure.getMessage(), failure);
+    }
+
+    /**
+     * Commit every lane. Called only after all lanes have written successfully.
+     */
+    public void commit() throws SQLException {
+        for (WriterLane lane : lanes) {
+            lane.commit();
+        }
+    }
+
+    public void rollback() {
+        for (WriterLane lane : lanes) {
+            lane.rollback();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        closeLanes();
+    }
+
+    private void closeLanes() {
+        for (WriterLane lane : lanes) {
+            try {
+                lane.close();
+            } catch (SQLException e) {
+                log.log(Level.SEVERE, "Error closing writer lane " + lane.getId(), e);
+            }
+        }
+        lanes.clear();
+    }
+}